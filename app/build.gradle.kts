@@ -37,6 +37,10 @@ android {
     kotlinOptions {
         jvmTarget = "11"
     }
+    androidResources {
+        // graph snapshots are memory-mapped straight from the APK
+        noCompress += "bpig"
+    }
 }
 
 dependencies {
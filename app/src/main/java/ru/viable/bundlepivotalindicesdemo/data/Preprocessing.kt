@@ -1,85 +1,173 @@
 package ru.viable.bundlepivotalindicesdemo.data
 
 import android.content.Context
-import org.jgrapht.graph.DefaultWeightedEdge
-import org.jgrapht.graph.builder.GraphTypeBuilder
-import org.jgrapht.io.Attribute
-import org.jgrapht.io.EdgeProvider
-import org.jgrapht.io.GmlImporter
-import org.jgrapht.io.VertexProvider
-import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex
-import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex
+import ru.viable.bundlepivotalindicesdemo.lib.CancellationToken
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy
+import ru.viable.bundlepivotalindicesdemo.lib.ScoreCache
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot
 import ru.viable.bundlepivotalindicesdemo.presentation.CalculationCallback
 import ru.viable.bundlepivotalindicesdemo.utils.Constants.Companion.countries
+import java.io.File
+import java.io.FileNotFoundException
+import java.util.concurrent.CompletableFuture
 
 class Preprocessing {
-    fun calculate(context: Context, file: String, callback: CalculationCallback) {
-        val vertexProvider =
-            VertexProvider { label: String?, attributes: Map<String?, Attribute?>? -> label }
-        val edgeProvider =
-            EdgeProvider { from: String?, to: String?, label: String?, attributes: Map<String?, Attribute?>? -> DefaultWeightedEdge() }
+    /**
+     * Loads the network of an asset and scores it, from the cache when possible. Otherwise both
+     * indices are computed side by side on the engine of the app and the rankings of the vertices
+     * scored so far are reported while they run. Returns once the computation is started, with a
+     * future completing after the final rankings were reported.
+     */
+    fun calculate(
+        context: Context,
+        file: String,
+        callback: CalculationCallback,
+        token: CancellationToken = CancellationToken(),
+    ): CompletableFuture<Unit> {
+        val compiled = load(context, file)
+        val quota = QuotaPolicy.fractionOfInWeight(0.45).compute(compiled)
 
-        val importer: GmlImporter<String, DefaultWeightedEdge> =
-            GmlImporter<String, DefaultWeightedEdge>(vertexProvider, edgeProvider)
-        val graph = GraphTypeBuilder
-            .directed<String, DefaultWeightedEdge>()
-            .allowingMultipleEdges(true).allowingSelfLoops(true)
-            .weighted(true)
-            .edgeClass(DefaultWeightedEdge::class.java)
-            .buildGraph()
+        // scores of the bundled assets are shipped with the app, anything else is computed once
+        val cache = cache(context)
+        val bundleKey = ScoreCache.key(IndexType.BUNDLE, compiled, quota, 2, true, true)
+        val pivotalKey = ScoreCache.key(IndexType.PIVOTAL, compiled, quota, 2, true, true)
+        seed(context, cache, bundleKey)
+        seed(context, cache, pivotalKey)
+        val bundle = cache.get(bundleKey)
+        val pivotal = cache.get(pivotalKey)
+        if (bundle != null && pivotal != null) {
+            callback.onReceiveResults(rankings(compiled.toMap(bundle), compiled.toMap(pivotal)))
+            return CompletableFuture.completedFuture(Unit)
+        }
 
-        importer.importGraph(graph, context.assets.open(file))
-        println(graph.vertexSet())
+        val ql = compiled.toMap(quota)
+        val partial = PartialRankings(compiled, callback)
+        // both computations share the pool of the engine, so they overlap
+        val bundleScores = engine.computeScoresAsync(IndexType.BUNDLE, compiled, ql, 2, true, true, token) { id, raw ->
+            partial.onVertex(BUNDLE, id, raw)
+        }
+        val pivotalScores = engine.computeScoresAsync(IndexType.PIVOTAL, compiled, ql, 2, true, true, token) { id, raw ->
+            partial.onVertex(PIVOTAL, id, raw)
+        }
+        // a failure of one index stops the other
+        bundleScores.whenComplete { _, failure -> if (failure != null) pivotalScores.cancel(false) }
+        pivotalScores.whenComplete { _, failure -> if (failure != null) bundleScores.cancel(false) }
+        return bundleScores.thenCombine(pivotalScores) { bundleMap, pivotalMap ->
+            cache.put(bundleKey, compiled.toArray(bundleMap))
+            cache.put(pivotalKey, compiled.toArray(pivotalMap))
+            callback.onReceiveResults(rankings(bundleMap, pivotalMap))
+        }
+    }
 
-        val ql: MutableMap<String, Double> = HashMap()
-        for (v in graph.vertexSet()) {
-            var sum = 0.0
-            for (u in graph.vertexSet()) {
-                val edge =
-                    graph.getEdge(
-                        u,
-                        v,
-                    )
-                if (edge != null) {
-                    sum += graph.getEdgeWeight(edge)
-                }
-            }
-            ql[v] = sum
+    /* Maps a snapshot asset, or parses a GML one in a single pass straight into the compiled graph */
+    private fun load(context: Context, file: String): CompiledGraph<String> {
+        if (!file.endsWith(".${GraphSnapshot.EXTENSION}")) {
+            return context.assets.open(file).use { GmlReader.read(it) }.graph()
         }
+        // snapshots are stored uncompressed, so they are mapped in place within the APK
+        return context.assets.openFd(file).use { fd ->
+            fd.createInputStream().use { GraphSnapshot.map(it.channel, fd.startOffset, fd.length).toCompiledGraph() }
+        }
+    }
+
+    /* Copies a cache entry computed at build time into the cache, if one was bundled */
+    private fun seed(context: Context, cache: ScoreCache, key: String) {
+        if (cache.contains(key)) {
+            return
+        }
+        try {
+            context.assets.open("$CACHE_DIR/$key${ScoreCache.EXTENSION}").use { cache.seed(key, it) }
+        } catch (e: FileNotFoundException) {
+            // not a bundled asset
+        }
+    }
 
-        graph.vertexSet().forEach { v -> ql[v] = 0.45 * ql[v]!! }
-        var w = StringBuilder()
-        val bundleIndex = BundleIndex(
-            graph,
-            2,
-            ql,
-            true,
-            true,
-            8,
-        )
-        var i = 0
-        w.append("Top-10 BI\n")
-        bundleIndex.scores.mapKeys { countries[Integer.valueOf(it.key)] }.mapValues { it.value / 1 }
-            .entries.sortedBy { -it.value }.take(15).forEach { (e, v) ->
-                i++; w.append(
-                    "$i.\t\t$e\t\t" + String.format(
-                        "%.3f",
-                        v,
-                    ) + "\n",
-                )
+    /* Raw scores of the vertices done so far, reported as rankings every few vertices */
+    private class PartialRankings(
+        private val compiled: CompiledGraph<String>,
+        private val callback: CalculationCallback,
+    ) {
+        private val raw = Array(2) { DoubleArray(compiled.vertexCount()) { Double.NaN } }
+        private val step = maxOf(1, compiled.vertexCount() / PARTIAL_REPORTS)
+        private var done = 0
+
+        /* Called from the worker threads of the engine */
+        @Synchronized
+        fun onVertex(index: Int, id: Int, score: Double) {
+            raw[index][id] = score
+            if (raw[1 - index][id].isNaN()) {
+                return
+            }
+            done++
+            if (done % step == 0 && done < compiled.vertexCount()) {
+                callback.onPartialResults(done, compiled.vertexCount(), rankings(shares(BUNDLE), shares(PIVOTAL)))
             }
-        val pivotalIndex = PivotalIndex(graph, 2, ql, true, true, 8)
-        var j = 1
-        w.append("\nTop-10 PI\n")
-        pivotalIndex.scores.mapKeys { countries[Integer.valueOf(it.key) ] }.mapValues { it.value / 1 }
-            .entries.sortedBy { -it.value }.take(15).forEach { (e, v) ->
-                w.append(
-                    "$j.\t\t$e\t\t" + String.format(
-                        "%.3f",
-                        v,
-                    ) + "\n",
-                ); j++
+        }
+
+        /* Scores of the vertices done with both indices, normalized among them */
+        private fun shares(index: Int): Map<String, Double> {
+            val scores = HashMap<String, Double>()
+            var total = 0.0
+            for (id in 0 until compiled.vertexCount()) {
+                if (!raw[BUNDLE][id].isNaN() && !raw[PIVOTAL][id].isNaN()) {
+                    scores[compiled.vertex(id)] = raw[index][id]
+                    total += raw[index][id]
+                }
             }
-        callback.onReceiveResults(w.toString())
+            return if (total == 0.0) scores else scores.mapValues { it.value / total }
+        }
+    }
+
+    companion object {
+        private const val CACHE_DIR = "scoreCache"
+        private const val CACHE_SIZE = 8L shl 20
+        private const val BUNDLE = 0
+        private const val PIVOTAL = 1
+
+        /* Number of partial rankings reported while scoring */
+        private const val PARTIAL_REPORTS = 20
+
+        /* Engine of the whole app, its pool lives as long as the process */
+        private val engine: IndexEngine by lazy { IndexEngine.builder().numThreads(8).build() }
+
+        @Volatile
+        private var scoreCache: ScoreCache? = null
+
+        /* Cache of the whole app, its directory is scanned once */
+        private fun cache(context: Context): ScoreCache = scoreCache ?: synchronized(this) {
+            scoreCache ?: ScoreCache(File(context.applicationContext.cacheDir, CACHE_DIR), CACHE_SIZE)
+                .also { scoreCache = it }
+        }
+
+        private fun rankings(bundleScores: Map<String, Double>, pivotalScores: Map<String, Double>): String {
+            val w = StringBuilder()
+            var i = 0
+            w.append("Top-10 BI\n")
+            bundleScores.mapKeys { countries[Integer.valueOf(it.key)] }.mapValues { it.value / 1 }
+                .entries.sortedBy { -it.value }.take(15).forEach { (e, v) ->
+                    i++; w.append(
+                        "$i.\t\t$e\t\t" + String.format(
+                            "%.3f",
+                            v,
+                        ) + "\n",
+                    )
+                }
+            var j = 1
+            w.append("\nTop-10 PI\n")
+            pivotalScores.mapKeys { countries[Integer.valueOf(it.key) ] }.mapValues { it.value / 1 }
+                .entries.sortedBy { -it.value }.take(15).forEach { (e, v) ->
+                    w.append(
+                        "$j.\t\t$e\t\t" + String.format(
+                            "%.3f",
+                            v,
+                        ) + "\n",
+                    ); j++
+                }
+            return w.toString()
+        }
     }
 }
@@ -0,0 +1,109 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Scores estimated by a {@link MonteCarloSampler}, each with a confidence interval. Arrays are
+ * indexed by vertex id and must not be modified.
+ */
+public class ApproximateScores {
+
+    private final double[] estimates;
+    private final double[] halfWidths;
+    private final long[] samples;
+    private final double confidence;
+    private final boolean converged;
+
+    ApproximateScores(double[] estimates, double[] halfWidths, long[] samples, double confidence, boolean converged) {
+        this.estimates = estimates;
+        this.halfWidths = halfWidths;
+        this.samples = samples;
+        this.confidence = confidence;
+        this.converged = converged;
+    }
+
+    /**
+     * Returns the estimated scores.
+     *
+     * @return the scores by vertex id
+     */
+    public double[] estimates() {
+        return estimates;
+    }
+
+    /**
+     * Returns the half-widths of the confidence intervals around the estimates, 0 for scores
+     * computed exactly.
+     *
+     * @return the half-widths by vertex id
+     */
+    public double[] halfWidths() {
+        return halfWidths;
+    }
+
+    /**
+     * Returns the lower end of the confidence interval of a score, never below 0.
+     *
+     * @param id the vertex id
+     * @return the lower end
+     */
+    public double lower(int id) {
+        return Math.max(0, estimates[id] - halfWidths[id]);
+    }
+
+    /**
+     * Returns the upper end of the confidence interval of a score.
+     *
+     * @param id the vertex id
+     * @return the upper end
+     */
+    public double upper(int id) {
+        return estimates[id] + halfWidths[id];
+    }
+
+    /**
+     * Returns the number of coalitions sampled for a vertex, not counting the ones enumerated
+     * exactly.
+     *
+     * @param id the vertex id
+     * @return the number of samples
+     */
+    public long samples(int id) {
+        return samples[id];
+    }
+
+    /**
+     * Returns the probability that a confidence interval holds the exact score.
+     *
+     * @return the confidence level
+     */
+    public double confidence() {
+        return confidence;
+    }
+
+    /**
+     * Tells whether every estimate reached the target relative error, false if the time budget ran
+     * out first or no target was set.
+     *
+     * @return true if the sampling converged
+     */
+    public boolean converged() {
+        return converged;
+    }
+
+    /**
+     * Returns the estimates normalized so that they sum up to one, the confidence intervals being
+     * scaled by the same factor.
+     *
+     * @return the normalized scores
+     */
+    public ApproximateScores normalize() {
+        double total = 0;
+        for (double estimate : estimates) {
+            total += estimate;
+        }
+        double[] scaled = new double[halfWidths.length];
+        for (int i = 0; i < scaled.length; i++) {
+            scaled[i] = total == 0 ? 0 : halfWidths[i] / total;
+        }
+        return new ApproximateScores(Normalizer.normalizeScores(estimates), scaled, samples, confidence, converged);
+    }
+}
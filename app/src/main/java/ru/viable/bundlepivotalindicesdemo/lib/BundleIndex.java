@@ -3,18 +3,9 @@ package ru.viable.bundlepivotalindicesdemo.lib;
 import org.jgrapht.Graph;
 import org.jgrapht.alg.interfaces.VertexScoringAlgorithm;
 
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
 
 public class BundleIndex<V, E> implements VertexScoringAlgorithm<V, Double> {
 
@@ -27,20 +18,28 @@ public class BundleIndex<V, E> implements VertexScoringAlgorithm<V, Double> {
     /**
      * Number of threads default value
      */
-    public static final int NUM_THREADS_DEFAULT = 1;
+    public static final int NUM_THREADS_DEFAULT = IndexEngine.NUM_THREADS_DEFAULT;
 
     /**
      * Underlying graph
      */
     protected final Graph<V, E> graph;
+    /**
+     * Compiled snapshot of the graph used for scoring
+     */
+    protected final CompiledGraph<V> compiled;
     /**
      * The maximum cardinality of subsets
      */
     protected final int k;
     /**
-     * The quota, not in percentage
+     * The quota, not in percentage, null if computed by a policy
      */
     protected final Map<V, Double> ql;
+    /**
+     * The quota of every vertex by id of the compiled graph
+     */
+    private final double[] quota;
     /**
      * The actual scores
      */
@@ -59,9 +58,17 @@ public class BundleIndex<V, E> implements VertexScoringAlgorithm<V, Double> {
      */
     protected final Normalizer<V, E> normalizer;
     /**
-     * The ExecutorService for parallel computing
+     * The IndexEngine for parallel computing
+     */
+    protected final IndexEngine engine;
+    /**
+     * The sampler estimating the scores, null if they are computed exactly
      */
-    protected final ExecutorService executor;
+    protected final MonteCarloSampler sampler;
+    /**
+     * The estimated scores with their confidence intervals, null if computed exactly
+     */
+    protected ApproximateScores approximation;
 
 
     /**
@@ -132,86 +139,187 @@ public class BundleIndex<V, E> implements VertexScoringAlgorithm<V, Double> {
      * @param numThreads the number of threads reserved for computations
      */
     public BundleIndex(Graph<V, E> graph, int k, Map<V, Double> ql, boolean normalize, boolean incoming, int numThreads) {
-        this.graph = Objects.requireNonNull(graph, "Graph cannot be null");
-        this.k = k;
-        this.ql = ql;
-        this.scores = new ConcurrentHashMap<>();
-        this.normalize = normalize;
-        this.incoming = incoming;
-        this.normalizer = new Normalizer<>();
-        this.executor = Executors.newFixedThreadPool(numThreads);
-        validate(graph, ql, k);
-        computeBundleIndex();
-        executor.shutdown();
+        this(graph, CompiledGraph.of(graph), k, ql, normalize, incoming, numThreads);
     }
 
-    /* Checks for the valid values of the parameters */
-    private void validate(Graph<V, E> graph, Map<V, Double> ql, int k) {
-        if (!graph.vertexSet().equals(ql.keySet())) {
-            throw new IllegalArgumentException("Vertices in graph and in q do not match");
-        }
+    /**
+     * Construct a new instance reusing a compiled snapshot of the graph.
+     *
+     * @param graph      the input graph
+     * @param compiled   the compiled snapshot of the input graph
+     * @param k          the maximum cardinality of critical sets (groups)
+     * @param ql         threshold values for each node
+     * @param normalize  whether to normalize the index values
+     * @param incoming   if true incoming paths are used, otherwise outgoing paths
+     * @param numThreads the number of threads reserved for computations
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, int numThreads) {
+        this(graph, compiled, k, ql, null, normalize, incoming, IndexEngine.builder().numThreads(numThreads).build(), null, new CancellationToken(), ProgressListener.NONE, true);
+    }
 
-        if (k <= 0) {
-            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
-        }
+    /**
+     * Construct a new instance computed on a shared engine.
+     *
+     * @param graph     the input graph
+     * @param compiled  the compiled snapshot of the input graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param ql        threshold values for each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, IndexEngine engine) {
+        this(graph, compiled, k, ql, null, normalize, incoming, engine, null, new CancellationToken(), ProgressListener.NONE, false);
+    }
+
+    /**
+     * Construct a new instance with quotas given by a policy.
+     *
+     * @param graph  the input graph
+     * @param k      the maximum cardinality of critical sets (groups)
+     * @param policy the policy computing the threshold of each node
+     */
+    public BundleIndex(Graph<V, E> graph, int k, QuotaPolicy policy) {
+        this(graph, CompiledGraph.of(graph), k, policy, true, true, NUM_THREADS_DEFAULT);
+    }
+
+    /**
+     * Construct a new instance with quotas given by a policy.
+     *
+     * @param graph      the input graph
+     * @param compiled   the compiled snapshot of the input graph
+     * @param k          the maximum cardinality of critical sets (groups)
+     * @param policy     the policy computing the threshold of each node
+     * @param normalize  whether to normalize the index values
+     * @param incoming   if true incoming paths are used, otherwise outgoing paths
+     * @param numThreads the number of threads reserved for computations
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, QuotaPolicy policy, boolean normalize, boolean incoming, int numThreads) {
+        this(graph, compiled, k, null, policy.compute(compiled), normalize, incoming, IndexEngine.builder().numThreads(numThreads).build(), null,
+                new CancellationToken(), ProgressListener.NONE, true);
+    }
 
+    /**
+     * Construct a new instance with quotas given by a policy, computed on a shared engine.
+     *
+     * @param graph     the input graph
+     * @param compiled  the compiled snapshot of the input graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param policy    the policy computing the threshold of each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, QuotaPolicy policy, boolean normalize, boolean incoming, IndexEngine engine) {
+        this(graph, compiled, k, null, policy.compute(compiled), normalize, incoming, engine, null, new CancellationToken(), ProgressListener.NONE, false);
     }
 
-    private void computeBundleIndex() {
-        List<Future<Void>> futures = new ArrayList<>();
+    /**
+     * Construct a new instance with scores estimated by sampling coalitions, for k and degrees
+     * where enumeration is infeasible.
+     *
+     * @param graph     the input graph
+     * @param compiled  the compiled snapshot of the input graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param ql        threshold values for each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     * @param sampler   the sampler estimating the scores
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, IndexEngine engine, MonteCarloSampler sampler) {
+        this(graph, compiled, k, ql, null, normalize, incoming, engine, Objects.requireNonNull(sampler, "Sampler cannot be null"), new CancellationToken(), ProgressListener.NONE, false);
+    }
 
-        for (V vertex : graph.vertexSet()) {
-            Future<Void> future = executor.submit(() -> {
-                double bl = 0;
-                Set<V> t = new HashSet<>(graph.vertexSet());
-                t.remove(vertex);
-                Set<Set<V>> subsets = generateSubsets(t, vertex, k);
+    /**
+     * Construct a new instance computed on a shared engine, reporting progress and stopping on
+     * cancellation.
+     *
+     * @param graph     the input graph
+     * @param compiled  the compiled snapshot of the input graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param ql        threshold values for each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     * @param token     the token cancelling the computation
+     * @param listener  the listener receiving the progress
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     * @throws IndexComputationException                   if the computation of a vertex fails
+     */
+    public BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, IndexEngine engine,
+            CancellationToken token, ProgressListener listener) {
+        this(graph, compiled, k, ql, null, normalize, incoming, engine, null, token, listener, false);
+    }
 
-                for (Set<V> subset : subsets) {
-                    double sum = 0;
-                    for (V v : subset) {
-                        E edge = incoming ? graph.getEdge(v, vertex) : graph.getEdge(vertex, v);
-                        if (edge != null) {
-                            sum += graph.getEdgeWeight(edge);
-                        }
-                    }
+    /* Either the quota map or the quota array by id is given, the other being null */
+    private BundleIndex(Graph<V, E> graph, CompiledGraph<V> compiled, int k, Map<V, Double> ql, double[] quota, boolean normalize, boolean incoming,
+            IndexEngine engine, MonteCarloSampler sampler, CancellationToken token, ProgressListener listener, boolean ownsEngine) {
+        try {
+            this.graph = Objects.requireNonNull(graph, "Graph cannot be null");
+            this.compiled = Objects.requireNonNull(compiled, "Compiled graph cannot be null");
+            this.k = k;
+            this.ql = ql;
+            this.normalize = normalize;
+            this.incoming = incoming;
+            this.normalizer = new Normalizer<>();
+            this.engine = Objects.requireNonNull(engine, "Engine cannot be null");
+            this.sampler = sampler;
+            validate(graph, ql, quota, k);
+            this.quota = quota != null ? quota : compiled.toArray(ql);
+            computeBundleIndex(token, listener);
+        } finally {
+            if (ownsEngine) {
+                engine.close();
+            }
+        }
+    }
 
-                    if (sum >= ql.get(vertex)) {
-                        bl++;
-                    }
-                }
+    /* Checks for the valid values of the parameters */
+    private void validate(Graph<V, E> graph, Map<V, Double> ql, double[] quota, int k) {
+        if (ql != null ? !graph.vertexSet().equals(ql.keySet()) : quota.length != compiled.vertexCount()) {
+            throw new IllegalArgumentException("Vertices in graph and in q do not match");
+        }
 
-                scores.put(vertex, bl);
-                return null;
-            });
+        if (compiled.vertexCount() != graph.vertexSet().size() || !graph.vertexSet().containsAll(compiled.vertices())) {
+            throw new IllegalArgumentException("Vertices in graph and in compiled graph do not match");
+        }
 
-            futures.add(future);
+        if (k <= 0) {
+            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
         }
 
-        for (Future<Void> future : futures) {
-            try {
-                future.get();
-            } catch (InterruptedException | ExecutionException e) {
-                e.printStackTrace();
+    }
+
+    private void computeBundleIndex(CancellationToken token, ProgressListener listener) {
+        if (sampler != null) {
+            approximation = sampler.estimate(engine, IndexType.BUNDLE, compiled, quota, k, incoming);
+            if (normalize) {
+                approximation = approximation.normalize();
             }
+            scores = compiled.toMap(approximation.estimates());
+            return;
         }
+        double[] raw = engine.computeRaw(IndexType.BUNDLE, compiled, quota, k, incoming, token, listener);
+        scores = compiled.toMap(raw);
 
         if (normalize) {
+            long start = engine.startPhase();
             scores = normalizer.normalizeScores(graph, scores);
+            engine.endPhase(IndexMetrics.Phase.NORMALIZE, start);
         }
     }
 
 
-    /* Generates a set of subsets of vertices of cardinality not more than k */
-    private Set<Set<V>> generateSubsets(Set<V> inputSet, V excludedVertex, int k) {
-        List<V> inputList = new ArrayList<>(inputSet);
-        Set<Set<V>> result = new HashSet<>();
-        SubsetsGenerator<V, E> generator = new SubsetsGenerator<>();
-        generator.generateSubsets(graph, inputList, result, new HashSet<>(), excludedVertex, 0, k, incoming);
-        return result;
+    /**
+     * Returns the estimated scores with their confidence intervals, normalized like the scores.
+     *
+     * @return the estimates by vertex id of the compiled graph, null if the scores are exact
+     */
+    public ApproximateScores getApproximation() {
+        return approximation;
     }
 
-
     /**
      * {@inheritDoc}
      */
@@ -0,0 +1,48 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Token through which a caller cancels computations of the {@link IndexEngine}. Cancelling stops
+ * the tasks not started yet at once and makes the computation throw a
+ * {@link java.util.concurrent.CancellationException}; running tasks stop at the next check of
+ * their counter or enumerator, every {@link CoalitionCounter#CHECK_INTERVAL} steps. A token may be
+ * shared by several computations and cannot be reset.
+ */
+public class CancellationToken {
+
+    private final Set<Runnable> callbacks = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * Cancels every computation using this token.
+     */
+    public void cancel() {
+        cancelled = true;
+        for (Runnable callback : callbacks) {
+            callback.run();
+        }
+    }
+
+    /**
+     * Tells whether the token was cancelled.
+     *
+     * @return true if cancelled
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /* Runs the callback on cancellation, at once if cancelled already; it may run more than once */
+    void register(Runnable callback) {
+        callbacks.add(callback);
+        if (cancelled) {
+            callback.run();
+        }
+    }
+
+    void unregister(Runnable callback) {
+        callbacks.remove(callback);
+    }
+}
@@ -0,0 +1,360 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Counts coalitions of cardinality not more than k whose weight reaches a quota without visiting
+ * each of them. Member weights are sorted in descending order, branches that cannot reach the quota
+ * even with the heaviest remaining members are pruned, and once a partial coalition already reaches
+ * the quota all of its completions are added at once with binomial coefficients. An instance owns
+ * its buffers and is not thread-safe; use one per thread.
+ * <p>
+ * Pivotal members are counted as swings: a member of weight w flips a coalition T of the other
+ * members from losing to winning exactly when q - w &lt;= w(T) &lt; q, so the number of swings is the
+ * difference of two winning counts over the remaining members.
+ * <p>
+ * Counts may be split into independent chunks by the heaviest member of a coalition: with members
+ * ranked by descending weight, the coalitions whose heaviest member has a rank in [from, to) form
+ * contiguous blocks in the lexicographic order of coalitions.
+ * <p>
+ * A counter given a cancellation token checks it every {@link #CHECK_INTERVAL} extensions and
+ * throws a {@link CancellationException} once it is cancelled, so a hub is not counted to the end.
+ */
+public class CoalitionCounter {
+
+    /**
+     * Number of extensions between two checks of the cancellation token, a power of two
+     */
+    public static final int CHECK_INTERVAL = 1 << 12;
+
+    /**
+     * The maximum cardinality of coalitions
+     */
+    private final int k;
+    /**
+     * The token stopping the count, null if it cannot be cancelled
+     */
+    private final CancellationToken token;
+    /**
+     * Extensions since the creation, for spacing the checks of the token
+     */
+    private int steps;
+    /**
+     * Member weights sorted in descending order
+     */
+    private double[] sorted = new double[0];
+    /**
+     * All member weights sorted in descending order while counting swings
+     */
+    private double[] members = new double[0];
+    /**
+     * Prefix sums of the non-negative parts of the sorted weights, used as upper bounds
+     */
+    private double[] bound = new double[1];
+    /**
+     * Pascal's triangle, binomial[m][j] = C(m, j) for j not more than k
+     */
+    private double[][] binomial = new double[0][];
+    /**
+     * Number of members in the current count
+     */
+    private int n;
+    /**
+     * Whether completions of a winning coalition are winning as well
+     */
+    private boolean monotone;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param k the maximum cardinality of coalitions
+     */
+    public CoalitionCounter(int k) {
+        this(k, null);
+    }
+
+    /**
+     * Construct a new instance stopped by a token.
+     *
+     * @param k     the maximum cardinality of coalitions
+     * @param token the token cancelling the counts, null if they cannot be cancelled
+     */
+    public CoalitionCounter(int k, CancellationToken token) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Maximum cardinality of coalitions must be non-negative");
+        }
+        this.k = k;
+        this.token = token;
+    }
+
+    /**
+     * Counts the coalitions, the empty one included, formed by the first n entries of the weight
+     * array whose weight reaches the quota.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @return the number of winning coalitions
+     */
+    public double countWinning(double[] weights, int n, double q) {
+        return countWinning(weights, n, q, 0, n);
+    }
+
+    /**
+     * Counts the winning coalitions whose heaviest member has a rank in [from, to), ranks ordering
+     * members by descending weight. The empty coalition belongs to the chunk starting at 0.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param from    the first rank of the heaviest member, inclusive
+     * @param to      the last rank of the heaviest member, exclusive
+     * @return the number of winning coalitions
+     */
+    public double countWinning(double[] weights, int n, double q, int from, int to) {
+        double[] bySize = new double[k + 1];
+        countWinningBySize(weights, n, q, bySize, from, to);
+        double result = 0;
+        for (double count : bySize) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Counts the winning coalitions grouped by cardinality.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param result  receives the number of winning coalitions of cardinality t at index t, must
+     *                have at least k + 1 entries
+     */
+    public void countWinningBySize(double[] weights, int n, double q, double[] result) {
+        countWinningBySize(weights, n, q, result, 0, n);
+    }
+
+    /**
+     * Counts the winning coalitions whose heaviest member has a rank in [from, to) grouped by
+     * cardinality.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param result  receives the number of winning coalitions of cardinality t at index t, must
+     *                have at least k + 1 entries
+     * @param from    the first rank of the heaviest member, inclusive
+     * @param to      the last rank of the heaviest member, exclusive
+     */
+    public void countWinningBySize(double[] weights, int n, double q, double[] result, int from, int to) {
+        prepare(weights, n);
+        if (from <= 0 && to >= n) {
+            countBySize(q, k, result);
+            return;
+        }
+        Arrays.fill(result, 0, k + 1, 0.0);
+        if (from <= 0 && 0.0 >= q) {
+            result[0]++;
+        }
+        if (k > 0) {
+            extend(Math.max(from, 0), Math.min(to, n), k, 0.0, 0, q, slack(q), result);
+        }
+    }
+
+    /**
+     * Sums the size of every winning coalition multiplied by the number of its pivotal members, a
+     * member being pivotal if the coalition without it no longer reaches the quota. Members of equal
+     * weight have the same swings, so each distinct weight is counted once.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @return the weighted number of pivotal members
+     */
+    public double countPivotal(double[] weights, int n, double q) {
+        return countPivotal(weights, n, q, 0, n);
+    }
+
+    /**
+     * Sums the swings of the members with a rank in [from, to), ranks ordering members by
+     * descending weight.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param from    the first rank of a member, inclusive
+     * @param to      the last rank of a member, exclusive
+     * @return the weighted number of pivotal members
+     */
+    public double countPivotal(double[] weights, int n, double q, int from, int to) {
+        double[] bySize = new double[k + 1];
+        countPivotalBySize(weights, n, q, bySize, from, to);
+        double result = 0;
+        for (double count : bySize) {
+            result += count;
+        }
+        return result;
+    }
+
+    /**
+     * Sums the swings grouped by the cardinality of the winning coalition.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param result  receives, at index t, t times the number of pivotal members over the winning
+     *                coalitions of cardinality t, must have at least k + 1 entries
+     */
+    public void countPivotalBySize(double[] weights, int n, double q, double[] result) {
+        countPivotalBySize(weights, n, q, result, 0, n);
+    }
+
+    /**
+     * Sums the swings of the members with a rank in [from, to) grouped by the cardinality of the
+     * winning coalition, ranks ordering members by descending weight.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @param result  receives, at index t, t times the number of pivotal members over the winning
+     *                coalitions of cardinality t, must have at least k + 1 entries
+     * @param from    the first rank of a member, inclusive
+     * @param to      the last rank of a member, exclusive
+     */
+    public void countPivotalBySize(double[] weights, int n, double q, double[] result, int from, int to) {
+        Arrays.fill(result, 0, k + 1, 0.0);
+        if (k == 0) {
+            return;
+        }
+        if (members.length < n) {
+            members = new double[n];
+        }
+        sortDescending(weights, n, members);
+        ensureCapacity(n);
+        ensureBinomial(n);
+
+        double[] lowered = new double[k];
+        double[] winning = new double[k];
+        to = Math.min(to, n);
+        for (int m = Math.max(from, 0); m < to; ) {
+            double w = members[m];
+            int equal = 1;
+            while (m + equal < to && members[m + equal] == w) {
+                equal++;
+            }
+            if (w > 0) {
+                // the remaining members are still sorted once one copy of w is taken out
+                System.arraycopy(members, 0, sorted, 0, m);
+                System.arraycopy(members, m + 1, sorted, m, n - m - 1);
+                load(n - 1);
+                countBySize(q - w, k - 1, lowered);
+                countBySize(q, k - 1, winning);
+                for (int t = 0; t < k; t++) {
+                    result[t + 1] += equal * (t + 1) * (lowered[t] - winning[t]);
+                }
+            }
+            m += equal;
+        }
+    }
+
+    /* Sorts the weights and fills the bounds and binomial coefficients */
+    private void prepare(double[] weights, int n) {
+        ensureCapacity(n);
+        sortDescending(weights, n, sorted);
+        load(n);
+        ensureBinomial(n);
+    }
+
+    private void ensureCapacity(int n) {
+        if (sorted.length < n) {
+            sorted = new double[n];
+            bound = new double[n + 1];
+        }
+    }
+
+    private static void sortDescending(double[] weights, int n, double[] dst) {
+        System.arraycopy(weights, 0, dst, 0, n);
+        Arrays.sort(dst, 0, n);
+        for (int i = 0, j = n - 1; i < j; i++, j--) {
+            double t = dst[i];
+            dst[i] = dst[j];
+            dst[j] = t;
+        }
+    }
+
+    /* Fills the bounds for the first n sorted weights */
+    private void load(int n) {
+        for (int i = 0; i < n; i++) {
+            bound[i + 1] = bound[i] + Math.max(sorted[i], 0.0);
+        }
+        this.n = n;
+        this.monotone = n == 0 || sorted[n - 1] >= 0;
+    }
+
+    /* Counts winning coalitions of the loaded weights of cardinality not more than r by size */
+    private void countBySize(double q, int r, double[] result) {
+        Arrays.fill(result, 0, r + 1, 0.0);
+        count(0, r, 0.0, 0, q, slack(q), result);
+    }
+
+    private void ensureBinomial(int m) {
+        if (binomial.length > m) {
+            return;
+        }
+        double[][] table = Arrays.copyOf(binomial, m + 1);
+        for (int i = binomial.length; i <= m; i++) {
+            table[i] = new double[k + 1];
+            table[i][0] = 1;
+            for (int j = 1; j <= k && j <= i; j++) {
+                table[i][j] = table[i - 1][j - 1] + (j < i ? table[i - 1][j] : 0);
+            }
+        }
+        binomial = table;
+    }
+
+    /*
+     * Counts coalitions extending the current one of the given size and weight with at most r
+     * members taken from sorted[i..n)
+     */
+    private void count(int i, int r, double sum, int size, double q, double slack, double[] result) {
+        if (sum >= q) {
+            if (monotone) {
+                int rest = n - i;
+                for (int j = 0; j <= r && j <= rest; j++) {
+                    result[size + j] += binomial[rest][j];
+                }
+                return;
+            }
+            result[size]++;
+        }
+        if (r == 0) {
+            return;
+        }
+        extend(i, n, r, sum, size, q, slack, result);
+    }
+
+    /* Counts coalitions extending the current one whose next member is taken from sorted[from..to) */
+    private void extend(int from, int to, int r, double sum, int size, double q, double slack, double[] result) {
+        for (int j = from; j < to; j++) {
+            // sorted in descending order, so the bound only decreases with j
+            if (sum + bound[Math.min(j + r, n)] - bound[j] < q - slack) {
+                return;
+            }
+            checkCancelled();
+            count(j + 1, r - 1, sum + sorted[j], size + 1, q, slack, result);
+        }
+    }
+
+    /* Throws if the token was cancelled, reading it only every CHECK_INTERVAL calls */
+    private void checkCancelled() {
+        if (token != null && (++steps & (CHECK_INTERVAL - 1)) == 0 && token.isCancelled()) {
+            throw new CancellationException("Index computation cancelled");
+        }
+    }
+
+    /* Tolerance keeping the pruning conservative against rounding of the prefix sums */
+    private static double slack(double q) {
+        return 1e-9 * Math.max(1.0, Math.abs(q));
+    }
+}
@@ -0,0 +1,174 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Enumerates coalitions of cardinality not more than k over a primitive array of member weights.
+ * Coalitions are walked in lexicographic order as arrays of indices into the weight array, keeping
+ * a running sum for every prefix, so nothing is allocated per coalition. An instance owns its
+ * buffers and is not thread-safe; use one per thread. An enumerator given a cancellation token
+ * checks it every {@link CoalitionCounter#CHECK_INTERVAL} steps and throws a
+ * {@link CancellationException} once it is cancelled.
+ */
+public class CoalitionEnumerator {
+
+    /**
+     * Receives every enumerated coalition. The members array is reused, only the first size entries
+     * are valid and it must not be retained after the call.
+     */
+    public interface Visitor {
+        void visit(double[] weights, int[] members, int size, double sum);
+
+        /**
+         * Visits the coalitions of maximum cardinality sharing all members but the last, the last
+         * one taking every index in [from, to) in order. The weight of each coalition is sum plus
+         * the weight of its last member. Visits them one at a time by default; visitors may
+         * override it to evaluate the whole run at once.
+         *
+         * @param weights the weights of the candidate members
+         * @param members the shared members, only the first size entries are valid
+         * @param size    the number of shared members, k - 1
+         * @param sum     the weight of the shared members
+         * @param from    the first index of the last member, inclusive
+         * @param to      the last index of the last member, exclusive
+         */
+        default void visitLast(double[] weights, int[] members, int size, double sum, int from, int to) {
+            for (int j = from; j < to; j++) {
+                members[size] = j;
+                visit(weights, members, size + 1, sum + weights[j]);
+            }
+        }
+    }
+
+    /**
+     * The maximum cardinality of coalitions
+     */
+    private final int k;
+    /**
+     * Indices of the members of the current coalition
+     */
+    private final int[] members;
+    /**
+     * Running sums, partial[i] is the weight of the first i members
+     */
+    private final double[] partial;
+    /**
+     * The token stopping the enumeration, null if it cannot be cancelled
+     */
+    private final CancellationToken token;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param k the maximum cardinality of coalitions
+     */
+    public CoalitionEnumerator(int k) {
+        this(k, null);
+    }
+
+    /**
+     * Construct a new instance stopped by a token.
+     *
+     * @param k     the maximum cardinality of coalitions
+     * @param token the token cancelling the enumerations, null if they cannot be cancelled
+     */
+    public CoalitionEnumerator(int k, CancellationToken token) {
+        if (k < 0) {
+            throw new IllegalArgumentException("Maximum cardinality of coalitions must be non-negative");
+        }
+        this.k = k;
+        this.members = new int[k];
+        this.partial = new double[k + 1];
+        this.token = token;
+    }
+
+    /**
+     * Visits every coalition of cardinality not more than k, the empty one included, formed by the
+     * first n entries of the weight array.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param visitor the visitor
+     * @return the number of visited coalitions
+     */
+    public long enumerate(double[] weights, int n, Visitor visitor) {
+        return enumerate(weights, n, visitor, 0, n);
+    }
+
+    /**
+     * Visits the coalitions whose first member has an index in [from, to). The empty coalition
+     * belongs to the range starting at 0.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param visitor the visitor
+     * @param from    the first index of the first member, inclusive
+     * @param to      the last index of the first member, exclusive
+     * @return the number of visited coalitions
+     */
+    public long enumerate(double[] weights, int n, Visitor visitor, int from, int to) {
+        long count = 0;
+        if (from <= 0) {
+            visitor.visit(weights, members, 0, 0.0);
+            count++;
+        }
+
+        int depth = 0;
+        int next = Math.max(from, 0);
+        int last = Math.min(to, n);
+        for (int steps = 1; ; steps++) {
+            if (token != null && (steps & (CoalitionCounter.CHECK_INTERVAL - 1)) == 0 && token.isCancelled()) {
+                throw new CancellationException("Index computation cancelled");
+            }
+            int end = depth == 0 ? last : n;
+            if (depth == k - 1 && next < end) {
+                // the coalitions of maximum cardinality only differ by their last member
+                visitor.visitLast(weights, members, depth, partial[depth], next, end);
+                count += end - next;
+                next = end;
+            } else if (depth < k && next < end) {
+                members[depth] = next;
+                partial[depth + 1] = partial[depth] + weights[next];
+                depth++;
+                visitor.visit(weights, members, depth, partial[depth]);
+                count++;
+                next++;
+            } else {
+                if (depth == 0) {
+                    return count;
+                }
+                depth--;
+                next = members[depth] + 1;
+            }
+        }
+    }
+
+    /**
+     * Counts the coalitions whose weight reaches the quota.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @return the number of winning coalitions
+     */
+    public double countWinning(double[] weights, int n, double q) {
+        CoalitionEvaluator evaluator = new CoalitionEvaluator.Bundle(q);
+        enumerate(weights, n, evaluator);
+        return evaluator.result();
+    }
+
+    /**
+     * Sums the size of every winning coalition multiplied by the number of its pivotal members, a
+     * member being pivotal if the coalition without it no longer reaches the quota.
+     *
+     * @param weights the weights of the candidate members
+     * @param n       the number of candidate members
+     * @param q       the quota
+     * @return the weighted number of pivotal members
+     */
+    public double countPivotal(double[] weights, int n, double q) {
+        CoalitionEvaluator evaluator = new CoalitionEvaluator.Pivotal(q);
+        enumerate(weights, n, evaluator);
+        return evaluator.result();
+    }
+}
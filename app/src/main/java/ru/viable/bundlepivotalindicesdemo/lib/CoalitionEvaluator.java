@@ -0,0 +1,129 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Accumulator computing the raw score of one vertex from its coalitions. The engine creates one
+ * evaluator per vertex, or per chunk of a hub vertex, through a {@link Factory}, and a single
+ * enumeration of the coalitions drives any number of evaluators together. Results of the chunks of
+ * a vertex are added, so an evaluator must accumulate a sum over coalitions.
+ */
+public interface CoalitionEvaluator extends CoalitionEnumerator.Visitor {
+
+    /**
+     * Returns the accumulated raw score.
+     *
+     * @return the raw score
+     */
+    double result();
+
+    /**
+     * Creates evaluators, must be thread-safe.
+     */
+    interface Factory {
+        /**
+         * Creates an evaluator for a vertex.
+         *
+         * @param quota the quota of the vertex
+         * @return the evaluator
+         */
+        CoalitionEvaluator create(double quota);
+    }
+
+    /**
+     * Returns the factory of Bundle Index evaluators, counting winning coalitions.
+     *
+     * @return the factory
+     */
+    static Factory bundle() {
+        return Bundle::new;
+    }
+
+    /**
+     * Returns the factory of Pivotal Index evaluators, adding the size of every winning coalition
+     * times the number of its pivotal members.
+     *
+     * @return the factory
+     */
+    static Factory pivotal() {
+        return Pivotal::new;
+    }
+
+    /**
+     * Bundle Index evaluator
+     */
+    class Bundle implements CoalitionEvaluator {
+        private final double q;
+        private double result;
+
+        public Bundle(double q) {
+            this.q = q;
+        }
+
+        @Override
+        public void visit(double[] weights, int[] members, int size, double sum) {
+            if (sum >= q) {
+                result++;
+            }
+        }
+
+        @Override
+        public void visitLast(double[] weights, int[] members, int size, double sum, int from, int to) {
+            int winning = 0;
+            for (int j = from; j < to; j++) {
+                winning += sum + weights[j] >= q ? 1 : 0;
+            }
+            result += winning;
+        }
+
+        @Override
+        public double result() {
+            return result;
+        }
+    }
+
+    /**
+     * Pivotal Index evaluator
+     */
+    class Pivotal implements CoalitionEvaluator {
+        private final double q;
+        private double result;
+
+        public Pivotal(double q) {
+            this.q = q;
+        }
+
+        @Override
+        public void visit(double[] weights, int[] members, int size, double sum) {
+            if (sum < q) {
+                return;
+            }
+            int pivotalNodes = 0;
+            for (int i = 0; i < size; i++) {
+                if (sum - weights[members[i]] < q) {
+                    pivotalNodes++;
+                }
+            }
+            result += size * pivotalNodes;
+        }
+
+        @Override
+        public void visitLast(double[] weights, int[] members, int size, double sum, int from, int to) {
+            long pivotalNodes = 0;
+            for (int j = from; j < to; j++) {
+                double total = sum + weights[j];
+                if (total < q) {
+                    continue;
+                }
+                pivotalNodes += total - weights[j] < q ? 1 : 0;
+                for (int i = 0; i < size; i++) {
+                    pivotalNodes += total - weights[members[i]] < q ? 1 : 0;
+                }
+            }
+            result += (double) (size + 1) * pivotalNodes;
+        }
+
+        @Override
+        public double result() {
+            return result;
+        }
+    }
+}
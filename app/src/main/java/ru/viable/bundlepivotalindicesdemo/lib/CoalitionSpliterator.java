@@ -0,0 +1,213 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Splittable spliterator over the coalitions of cardinality not more than k of n members. Each
+ * coalition is an ascending array of member indices. Coalitions are ordered by size and then
+ * lexicographically, and every coalition has a rank in that order given by the combinatorial number
+ * system, so the spliterator splits in the middle of its rank range in O(n * k) and the two halves
+ * always hold the same number of coalitions.
+ */
+public class CoalitionSpliterator implements Spliterator<int[]> {
+
+    /**
+     * Number of candidate members
+     */
+    private final int n;
+    /**
+     * The maximum cardinality of coalitions
+     */
+    private final int k;
+    /**
+     * offsets[t] is the rank of the first coalition of size t, offsets[k + 1] the total count
+     */
+    private final long[] offsets;
+    /**
+     * Rank of the current coalition
+     */
+    private long index;
+    /**
+     * Rank following the last coalition of this spliterator
+     */
+    private final long fence;
+    /**
+     * Size of the current coalition
+     */
+    private int size;
+    /**
+     * Members of the current coalition
+     */
+    private int[] current;
+
+    /**
+     * Construct a new instance covering every coalition, the empty one included.
+     *
+     * @param n the number of candidate members
+     * @param k the maximum cardinality of coalitions
+     */
+    public CoalitionSpliterator(int n, int k) {
+        this(n, Math.min(k, n), offsets(n, Math.min(k, n)));
+    }
+
+    private CoalitionSpliterator(int n, int k, long[] offsets) {
+        this(n, k, offsets, 0, offsets[k + 1]);
+        position(0);
+    }
+
+    private CoalitionSpliterator(int n, int k, long[] offsets, long index, long fence) {
+        this.n = n;
+        this.k = k;
+        this.offsets = offsets;
+        this.index = index;
+        this.fence = fence;
+    }
+
+    /**
+     * Returns the number of coalitions of cardinality not more than k of n members.
+     *
+     * @param n the number of candidate members
+     * @param k the maximum cardinality of coalitions
+     * @return the number of coalitions
+     * @throws IllegalArgumentException if the number does not fit in a long
+     */
+    public static long count(int n, int k) {
+        return offsets(n, Math.min(k, n))[Math.min(k, n) + 1];
+    }
+
+    private static long[] offsets(int n, int k) {
+        if (n < 0 || k < 0) {
+            throw new IllegalArgumentException("Number of members and cardinality must be non-negative");
+        }
+        long[] offsets = new long[k + 2];
+        try {
+            for (int t = 0; t <= k; t++) {
+                offsets[t + 1] = Math.addExact(offsets[t], binomial(n, t));
+            }
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Too many coalitions to rank", e);
+        }
+        return offsets;
+    }
+
+    /* C(m, r) computed exactly, throwing ArithmeticException on overflow */
+    private static long binomial(int m, int r) {
+        if (r < 0 || r > m) {
+            return 0;
+        }
+        r = Math.min(r, m - r);
+        long result = 1;
+        for (int i = 1; i <= r; i++) {
+            // result * (m - r + i) is divisible by i
+            long g = gcd(result, i);
+            result = Math.multiplyExact(result / g, (m - r + i) / (i / g));
+        }
+        return result;
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+
+    /* Sets the current coalition to the one of the given rank */
+    private void position(long rank) {
+        if (rank >= fence) {
+            return;
+        }
+        int t = 0;
+        while (offsets[t + 1] <= rank) {
+            t++;
+        }
+        long r = rank - offsets[t];
+        size = t;
+        current = new int[t];
+        int c = 0;
+        for (int i = 0; i < t; i++) {
+            while (true) {
+                long below = binomial(n - 1 - c, t - 1 - i);
+                if (r < below) {
+                    break;
+                }
+                r -= below;
+                c++;
+            }
+            current[i] = c++;
+        }
+    }
+
+    /* Moves to the coalition following the current one */
+    private void step() {
+        if (index == offsets[size + 1]) {
+            size++;
+            current = new int[size];
+            for (int i = 0; i < size; i++) {
+                current[i] = i;
+            }
+            return;
+        }
+        int i = size - 1;
+        while (current[i] == n - size + i) {
+            i--;
+        }
+        current[i]++;
+        for (int j = i + 1; j < size; j++) {
+            current[j] = current[j - 1] + 1;
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super int[]> action) {
+        if (index >= fence) {
+            return false;
+        }
+        int[] members = current.clone();
+        index++;
+        if (index < fence) {
+            step();
+        }
+        action.accept(members);
+        return true;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Spliterator<int[]> trySplit() {
+        long mid = (index + fence) >>> 1;
+        if (mid <= index) {
+            return null;
+        }
+        CoalitionSpliterator prefix = new CoalitionSpliterator(n, k, offsets, index, mid);
+        prefix.size = size;
+        prefix.current = current;
+        this.index = mid;
+        position(mid);
+        return prefix;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long estimateSize() {
+        return fence - index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | DISTINCT | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -0,0 +1,396 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import org.jgrapht.Graph;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Immutable compiled snapshot of a weighted directed graph. Vertices are numbered 0..n-1 and both
+ * incoming and outgoing adjacency are stored in compressed sparse row form, each row sorted by
+ * neighbour id. Parallel edges are merged into one with the sum of their weights.
+ *
+ * @param <V> the graph vertex type
+ */
+public class CompiledGraph<V> {
+
+    /**
+     * Vertices by id
+     */
+    private final List<V> vertices;
+    /**
+     * Ids by vertex
+     */
+    private final Map<V, Integer> ids;
+    /**
+     * Row offsets of the incoming adjacency, of length n + 1
+     */
+    private final int[] inOffsets;
+    /**
+     * Sources of incoming edges
+     */
+    private final int[] inSources;
+    /**
+     * Aggregated weights of incoming edges
+     */
+    private final double[] inWeights;
+    /**
+     * Row offsets of the outgoing adjacency, of length n + 1
+     */
+    private final int[] outOffsets;
+    /**
+     * Targets of outgoing edges
+     */
+    private final int[] outTargets;
+    /**
+     * Aggregated weights of outgoing edges
+     */
+    private final double[] outWeights;
+
+    private CompiledGraph(List<V> vertices, int[] outOffsets, int[] outTargets, double[] outWeights) {
+        this.vertices = Collections.unmodifiableList(vertices);
+        this.ids = new HashMap<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            if (ids.put(vertices.get(i), i) != null) {
+                throw new IllegalArgumentException("Duplicate vertex " + vertices.get(i));
+            }
+        }
+        this.outOffsets = outOffsets;
+        this.outTargets = outTargets;
+        this.outWeights = outWeights;
+
+        int n = vertices.size();
+        int m = outOffsets[n];
+        this.inOffsets = new int[n + 1];
+        this.inSources = new int[m];
+        this.inWeights = new double[m];
+        for (int e = 0; e < m; e++) {
+            inOffsets[outTargets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            inOffsets[v + 1] += inOffsets[v];
+        }
+        // sources are visited in ascending order, so every incoming row ends up sorted
+        int[] fill = new int[n];
+        for (int u = 0; u < n; u++) {
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                int v = outTargets[e];
+                int slot = inOffsets[v] + fill[v]++;
+                inSources[slot] = u;
+                inWeights[slot] = outWeights[e];
+            }
+        }
+    }
+
+    /**
+     * Compiles a graph. Vertex ids follow the iteration order of the vertex set.
+     *
+     * @param graph the input graph
+     * @param <V>   the graph vertex type
+     * @param <E>   the graph edge type
+     * @return the compiled graph
+     */
+    public static <V, E> CompiledGraph<V> of(Graph<V, E> graph) {
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        List<V> vertices = new ArrayList<>(graph.vertexSet());
+        Map<V, Integer> ids = new HashMap<>();
+        for (int i = 0; i < vertices.size(); i++) {
+            ids.put(vertices.get(i), i);
+        }
+        int m = graph.edgeSet().size();
+        int[] sources = new int[m];
+        int[] targets = new int[m];
+        double[] weights = new double[m];
+        int e = 0;
+        for (E edge : graph.edgeSet()) {
+            sources[e] = ids.get(graph.getEdgeSource(edge));
+            targets[e] = ids.get(graph.getEdgeTarget(edge));
+            weights[e] = graph.getEdgeWeight(edge);
+            e++;
+        }
+        return of(vertices, sources, targets, weights, m);
+    }
+
+    /**
+     * Compiles a graph given as an edge list over vertex ids.
+     *
+     * @param vertices  the vertices, the position of a vertex is its id
+     * @param sources   the source ids of the edges
+     * @param targets   the target ids of the edges
+     * @param weights   the weights of the edges
+     * @param edgeCount the number of edges
+     * @param <V>       the graph vertex type
+     * @return the compiled graph
+     */
+    public static <V> CompiledGraph<V> of(List<V> vertices, int[] sources, int[] targets, double[] weights, int edgeCount) {
+        int n = vertices.size();
+        // bucket edges by target first, then redistribute them by source visiting targets in
+        // ascending order, so that every outgoing row is sorted and parallel edges are adjacent
+        int[] byTarget = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            checkId(sources[e], n);
+            checkId(targets[e], n);
+            byTarget[targets[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            byTarget[v + 1] += byTarget[v];
+        }
+        int[] edgeOrder = new int[edgeCount];
+        int[] fill = new int[n];
+        for (int e = 0; e < edgeCount; e++) {
+            edgeOrder[byTarget[targets[e]] + fill[targets[e]]++] = e;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int e = 0; e < edgeCount; e++) {
+            offsets[sources[e] + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+        int[] rowTargets = new int[edgeCount];
+        double[] rowWeights = new double[edgeCount];
+        Arrays.fill(fill, 0);
+        for (int i = 0; i < edgeCount; i++) {
+            int e = edgeOrder[i];
+            int slot = offsets[sources[e]] + fill[sources[e]]++;
+            rowTargets[slot] = targets[e];
+            rowWeights[slot] = weights[e];
+        }
+
+        // merge parallel edges in place
+        int[] outOffsets = new int[n + 1];
+        int m = 0;
+        for (int u = 0; u < n; u++) {
+            int rowStart = m;
+            for (int i = offsets[u]; i < offsets[u + 1]; i++) {
+                if (m > rowStart && rowTargets[m - 1] == rowTargets[i]) {
+                    rowWeights[m - 1] += rowWeights[i];
+                } else {
+                    rowTargets[m] = rowTargets[i];
+                    rowWeights[m] = rowWeights[i];
+                    m++;
+                }
+            }
+            outOffsets[u + 1] = m;
+        }
+        return new CompiledGraph<>(new ArrayList<>(vertices), outOffsets,
+                Arrays.copyOf(rowTargets, m), Arrays.copyOf(rowWeights, m));
+    }
+
+    /**
+     * Creates a graph from outgoing rows in compressed sparse row form, as kept by
+     * {@link #offsets(boolean)}, {@link #neighbours(boolean)} and {@link #weights(boolean)}. The
+     * arrays are used as they are, every row must be sorted by strictly ascending target id.
+     *
+     * @param vertices   the vertices, the position of a vertex is its id
+     * @param outOffsets the row offsets, of length n + 1
+     * @param outTargets the targets of the edges
+     * @param outWeights the weights of the edges
+     * @param <V>        the graph vertex type
+     * @return the compiled graph
+     */
+    public static <V> CompiledGraph<V> fromRows(List<V> vertices, int[] outOffsets, int[] outTargets, double[] outWeights) {
+        int n = vertices.size();
+        if (outOffsets.length != n + 1 || outOffsets[0] != 0
+                || outTargets.length != outOffsets[n] || outWeights.length != outOffsets[n]) {
+            throw new IllegalArgumentException("Rows do not match the vertices");
+        }
+        for (int u = 0; u < n; u++) {
+            if (outOffsets[u + 1] < outOffsets[u]) {
+                throw new IllegalArgumentException("Row offsets must not decrease");
+            }
+            for (int e = outOffsets[u]; e < outOffsets[u + 1]; e++) {
+                checkId(outTargets[e], n);
+                if (e > outOffsets[u] && outTargets[e] <= outTargets[e - 1]) {
+                    throw new IllegalArgumentException("Row " + u + " is not sorted");
+                }
+            }
+        }
+        return new CompiledGraph<>(new ArrayList<>(vertices), outOffsets, outTargets, outWeights);
+    }
+
+    private static void checkId(int id, int n) {
+        if (id < 0 || id >= n) {
+            throw new IllegalArgumentException("Unknown vertex id " + id);
+        }
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertices.size();
+    }
+
+    /**
+     * Returns the number of edges, parallel edges counted once.
+     *
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return outTargets.length;
+    }
+
+    /**
+     * Returns the vertices in id order.
+     *
+     * @return an unmodifiable list of vertices
+     */
+    public List<V> vertices() {
+        return vertices;
+    }
+
+    /**
+     * Returns the vertex with the given id.
+     *
+     * @param id the vertex id
+     * @return the vertex
+     */
+    public V vertex(int id) {
+        return vertices.get(id);
+    }
+
+    /**
+     * Returns the id of a vertex.
+     *
+     * @param v the vertex
+     * @return the id, or -1 if the vertex is unknown
+     */
+    public int id(V v) {
+        Integer id = ids.get(v);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Returns the number of distinct neighbours of a vertex, the vertex itself included if it has a
+     * self-loop.
+     *
+     * @param v        the vertex id
+     * @param incoming if true sources of incoming edges are counted, otherwise targets of outgoing
+     *                 edges
+     * @return the degree
+     */
+    public int degree(int v, boolean incoming) {
+        int[] offsets = offsets(incoming);
+        return offsets[v + 1] - offsets[v];
+    }
+
+    /**
+     * Returns the row offsets of the adjacency. The array must not be modified.
+     *
+     * @param incoming if true the incoming adjacency is used, otherwise the outgoing one
+     * @return the row offsets, of length n + 1
+     */
+    public int[] offsets(boolean incoming) {
+        return incoming ? inOffsets : outOffsets;
+    }
+
+    /**
+     * Returns the neighbour ids of the adjacency. The array must not be modified.
+     *
+     * @param incoming if true the incoming adjacency is used, otherwise the outgoing one
+     * @return the neighbour ids, row by row
+     */
+    public int[] neighbours(boolean incoming) {
+        return incoming ? inSources : outTargets;
+    }
+
+    /**
+     * Returns the aggregated edge weights of the adjacency. The array must not be modified.
+     *
+     * @param incoming if true the incoming adjacency is used, otherwise the outgoing one
+     * @return the weights, row by row
+     */
+    public double[] weights(boolean incoming) {
+        return incoming ? inWeights : outWeights;
+    }
+
+    /**
+     * Copies the weights of the edges between a vertex and its neighbours, self-loops excluded.
+     *
+     * @param v        the vertex id
+     * @param incoming if true incoming edges are used, otherwise outgoing edges
+     * @param dst      receives the weights, must hold at least degree(v, incoming) entries
+     * @return the number of copied weights
+     */
+    public int coalitionWeights(int v, boolean incoming, double[] dst) {
+        int[] offsets = offsets(incoming);
+        int[] neighbours = neighbours(incoming);
+        double[] weights = weights(incoming);
+        int n = 0;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (neighbours[e] != v) {
+                dst[n++] = weights[e];
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the total weight of the edges entering a vertex.
+     *
+     * @param v the vertex id
+     * @return the in-weight
+     */
+    public double inWeight(int v) {
+        return rowSum(inOffsets, inWeights, v);
+    }
+
+    /**
+     * Returns the total weight of the edges leaving a vertex.
+     *
+     * @param v the vertex id
+     * @return the out-weight
+     */
+    public double outWeight(int v) {
+        return rowSum(outOffsets, outWeights, v);
+    }
+
+    /**
+     * Converts a map of per-vertex values into an array indexed by vertex id.
+     *
+     * @param values the values for every vertex
+     * @return the values by id
+     */
+    public double[] toArray(Map<V, Double> values) {
+        double[] result = new double[vertices.size()];
+        for (int i = 0; i < result.length; i++) {
+            Double value = values.get(vertices.get(i));
+            if (value == null) {
+                throw new IllegalArgumentException("Missing value for vertex " + vertices.get(i));
+            }
+            result[i] = value;
+        }
+        return result;
+    }
+
+    /**
+     * Converts an array indexed by vertex id into a map.
+     *
+     * @param values the values by id
+     * @return the values for every vertex
+     */
+    public Map<V, Double> toMap(double[] values) {
+        Map<V, Double> result = new HashMap<>();
+        for (int i = 0; i < values.length; i++) {
+            result.put(vertices.get(i), values[i]);
+        }
+        return result;
+    }
+
+    private static double rowSum(int[] offsets, double[] weights, int v) {
+        double sum = 0;
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            sum += weights[e];
+        }
+        return sum;
+    }
+}
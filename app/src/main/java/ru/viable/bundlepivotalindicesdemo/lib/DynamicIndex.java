@@ -0,0 +1,248 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import org.jgrapht.alg.interfaces.VertexScoringAlgorithm;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Mutable variant of {@link BundleIndex} and {@link PivotalIndex} for a fixed vertex set. The score
+ * of a vertex depends only on the edges joining it to its neighbours and on its own quota, so an
+ * edge or quota update recomputes exactly one raw score and adjusts the sum of raw scores used for
+ * normalization. Parallel edges are merged as in {@link CompiledGraph}.
+ *
+ * @param <V> the graph vertex type
+ */
+public class DynamicIndex<V> implements VertexScoringAlgorithm<V, Double> {
+
+    /**
+     * The index to compute
+     */
+    protected final IndexType type;
+    /**
+     * The maximum cardinality of subsets
+     */
+    protected final int k;
+    /**
+     * Whether to normalize scores
+     */
+    protected final boolean normalize;
+    /**
+     * Whether to use incoming or outgoing paths
+     */
+    protected final boolean incoming;
+    /**
+     * Vertices by id
+     */
+    private final List<V> vertices;
+    /**
+     * Ids by vertex
+     */
+    private final Map<V, Integer> ids;
+    /**
+     * For every vertex, the aggregated edge weight by neighbour id. A self-loop is kept under the
+     * id of the vertex itself but is no member of its coalitions
+     */
+    private final List<Map<Integer, Double>> members;
+    /**
+     * The quota of every vertex by id
+     */
+    private final double[] quota;
+    /**
+     * The raw scores by id
+     */
+    private final double[] raw;
+    /**
+     * Counter used to recompute single vertices
+     */
+    private final CoalitionCounter counter;
+    /**
+     * The sum of all raw scores
+     */
+    private double total;
+
+    /**
+     * Construct a new instance, computing the initial scores on the engine.
+     *
+     * @param type      the index to compute
+     * @param compiled  the compiled graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param ql        threshold values for each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the initial computation
+     */
+    public DynamicIndex(IndexType type, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, IndexEngine engine) {
+        this.type = Objects.requireNonNull(type, "Index type cannot be null");
+        this.k = k;
+        this.normalize = normalize;
+        this.incoming = incoming;
+        this.vertices = new ArrayList<>(compiled.vertices());
+        this.ids = new HashMap<>();
+        this.members = new ArrayList<>();
+        this.quota = compiled.toArray(ql);
+        this.counter = new CoalitionCounter(Math.max(k, 0));
+
+        int[] offsets = compiled.offsets(incoming);
+        int[] neighbours = compiled.neighbours(incoming);
+        double[] weights = compiled.weights(incoming);
+        for (int v = 0; v < vertices.size(); v++) {
+            ids.put(vertices.get(v), v);
+            Map<Integer, Double> row = new HashMap<>();
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                row.put(neighbours[e], weights[e]);
+            }
+            members.add(row);
+        }
+
+        this.raw = engine.computeRaw(type, compiled, quota, k, incoming);
+        for (double score : raw) {
+            total += score;
+        }
+    }
+
+    /**
+     * Sets the weight of an existing edge, parallel edges included. A self-loop is no member of
+     * any coalition, so updating one changes no score.
+     *
+     * @param source the source of the edge
+     * @param target the target of the edge
+     * @param weight the new weight
+     */
+    public synchronized void updateEdgeWeight(V source, V target, double weight) {
+        int u = id(source);
+        int v = id(target);
+        Map<Integer, Double> row = row(u, v);
+        int member = member(u, v);
+        if (!row.containsKey(member)) {
+            throw new IllegalArgumentException("No edge from " + source + " to " + target);
+        }
+        row.put(member, weight);
+        if (u != v) {
+            rescore(owner(u, v));
+        }
+    }
+
+    /**
+     * Adds an edge. If the edge exists its weight is increased, as parallel edges are merged.
+     *
+     * @param source the source of the edge
+     * @param target the target of the edge
+     * @param weight the weight of the edge
+     */
+    public synchronized void addEdge(V source, V target, double weight) {
+        int u = id(source);
+        int v = id(target);
+        row(u, v).merge(member(u, v), weight, Double::sum);
+        if (u != v) {
+            rescore(owner(u, v));
+        }
+    }
+
+    /**
+     * Removes an edge together with its parallel edges.
+     *
+     * @param source the source of the edge
+     * @param target the target of the edge
+     */
+    public synchronized void removeEdge(V source, V target) {
+        int u = id(source);
+        int v = id(target);
+        if (row(u, v).remove(member(u, v)) != null && u != v) {
+            rescore(owner(u, v));
+        }
+    }
+
+    /**
+     * Sets the quota of a vertex.
+     *
+     * @param v     the vertex
+     * @param value the new quota, not in percentage
+     */
+    public synchronized void setQuota(V v, double value) {
+        int id = id(v);
+        quota[id] = value;
+        rescore(id);
+    }
+
+    /**
+     * Returns the raw score of a vertex.
+     *
+     * @param v the vertex
+     * @return the raw score
+     */
+    public synchronized double getRawScore(V v) {
+        return raw[id(v)];
+    }
+
+    /* The vertex whose score depends on the edge */
+    private int owner(int u, int v) {
+        return incoming ? v : u;
+    }
+
+    /* The neighbour the edge contributes to the coalitions of its owner */
+    private int member(int u, int v) {
+        return incoming ? u : v;
+    }
+
+    private Map<Integer, Double> row(int u, int v) {
+        return members.get(owner(u, v));
+    }
+
+    private int id(V v) {
+        Integer id = ids.get(v);
+        if (id == null) {
+            throw new IllegalArgumentException("Unknown vertex " + v);
+        }
+        return id;
+    }
+
+    /* Recomputes a single raw score and the sum of raw scores */
+    private void rescore(int v) {
+        Map<Integer, Double> row = members.get(v);
+        double[] weights = new double[row.size()];
+        int n = 0;
+        for (Map.Entry<Integer, Double> member : row.entrySet()) {
+            if (member.getKey() != v) {
+                weights[n++] = member.getValue();
+            }
+        }
+        double score = type.score(counter, weights, n, quota[v], 0, n);
+        total += score - raw[v];
+        raw[v] = score;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Map<V, Double> getScores() {
+        Map<V, Double> scores = new HashMap<>();
+        for (int v = 0; v < raw.length; v++) {
+            scores.put(vertices.get(v), score(v));
+        }
+        return Collections.unmodifiableMap(scores);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized Double getVertexScore(V v) {
+        if (!ids.containsKey(v)) {
+            throw new IllegalArgumentException("Cannot return score of unknown vertex");
+        }
+        return score(ids.get(v));
+    }
+
+    private double score(int v) {
+        if (!normalize) {
+            return raw[v];
+        }
+        return total == 0 ? 1.0 / raw.length : raw[v] / total;
+    }
+}
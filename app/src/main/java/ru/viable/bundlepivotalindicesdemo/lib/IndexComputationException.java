@@ -0,0 +1,30 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Thrown when a task of the {@link IndexEngine} fails. The other tasks of the computation are
+ * cancelled as soon as the first one fails, and the failure is the cause of this exception.
+ */
+public class IndexComputationException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int vertex;
+
+    /**
+     * @param vertex the id of the vertex whose task failed, -1 if unknown
+     * @param cause  the failure
+     */
+    public IndexComputationException(int vertex, Throwable cause) {
+        super(vertex < 0 ? "Index computation failed" : "Index computation failed on vertex " + vertex, cause);
+        this.vertex = vertex;
+    }
+
+    /**
+     * Returns the vertex whose task failed.
+     *
+     * @return the vertex id, -1 if unknown
+     */
+    public int getVertex() {
+        return vertex;
+    }
+}
@@ -0,0 +1,686 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.function.IntConsumer;
+
+/**
+ * Long-lived engine computing power indices of compiled graphs on a shared executor. An engine is
+ * thread-safe and may score many graphs and parameter sets concurrently. It must not be called
+ * from a task of a fixed thread pool it runs on, as waiting for the results would then occupy a
+ * worker.
+ * <p>
+ * Every vertex is one task, except vertices with at least {@link #SPLIT_THRESHOLD} candidate
+ * coalitions, which are split into chunks of member ranks of about the same cost so that a few
+ * hubs do not keep a single thread busy while the others are idle.
+ * <p>
+ * A computation fails fast: the first failing task cancels the tasks not started yet and raises an
+ * {@link IndexComputationException}, and a {@link CancellationToken} stops a computation the same
+ * way on request. The asynchronous methods return at once with a future and never block, so they
+ * may also be called from the tasks of the engine's own executor.
+ */
+public class IndexEngine implements AutoCloseable {
+
+    /**
+     * Number of threads default value
+     */
+    public static final int NUM_THREADS_DEFAULT = 1;
+
+    /**
+     * Number of candidate coalitions of a vertex above which it is scored in several chunks
+     */
+    public static final double SPLIT_THRESHOLD = 1 << 16;
+
+    /**
+     * Number of chunks per thread a hub vertex is split into
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The executor running vertex tasks
+     */
+    private final Executor executor;
+    /**
+     * The executor created by the engine itself, shut down on close
+     */
+    private final ExecutorService ownedExecutor;
+    /**
+     * The number of threads of the executor
+     */
+    private final int parallelism;
+    /**
+     * The instrumentation hooks, called only if not {@link IndexMetrics#NOOP}
+     */
+    private final IndexMetrics metrics;
+
+    private IndexEngine(Executor executor, ExecutorService ownedExecutor, int parallelism, IndexMetrics metrics) {
+        this.executor = executor;
+        this.ownedExecutor = ownedExecutor;
+        this.parallelism = parallelism;
+        this.metrics = metrics;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Returns the metrics the engine reports to.
+     *
+     * @return the metrics, {@link IndexMetrics#NOOP} if none were set
+     */
+    public IndexMetrics metrics() {
+        return metrics;
+    }
+
+    /**
+     * Computes raw scores of every vertex.
+     *
+     * @param type     the index to compute
+     * @param graph    the compiled graph
+     * @param quota    the quota of every vertex by id
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @return the raw scores by vertex id
+     */
+    public double[] computeRaw(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming) {
+        return computeRaw(type, graph, quota, k, incoming, new CancellationToken(), ProgressListener.NONE);
+    }
+
+    /**
+     * Computes raw scores of every vertex, reporting progress and stopping on cancellation.
+     *
+     * @param type     the index to compute
+     * @param graph    the compiled graph
+     * @param quota    the quota of every vertex by id
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @param token    the token cancelling the computation
+     * @param listener the listener receiving the progress
+     * @return the raw scores by vertex id
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     * @throws IndexComputationException                   if a task fails
+     */
+    public double[] computeRaw(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming,
+                               CancellationToken token, ProgressListener listener) {
+        int[] targets = new int[graph.vertexCount()];
+        for (int id = 0; id < targets.length; id++) {
+            targets[id] = id;
+        }
+        return computeRaw(type, graph, quota, k, incoming, targets, token, listener);
+    }
+
+    /**
+     * Computes raw scores of the target vertices only.
+     *
+     * @param type     the index to compute
+     * @param graph    the compiled graph
+     * @param quota    the quota of every vertex by id
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @param targets  the ids of the vertices to score
+     * @return the raw scores, aligned with the targets
+     */
+    public double[] computeRaw(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming, int[] targets) {
+        return computeRaw(type, graph, quota, k, incoming, targets, new CancellationToken(), ProgressListener.NONE);
+    }
+
+    private double[] computeRaw(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming, int[] targets,
+                                CancellationToken token, ProgressListener listener) {
+        return join(submitRaw(type, graph, quota, k, incoming, targets, token, listener, VertexListener.NONE));
+    }
+
+    /**
+     * Starts computing raw scores of every vertex without waiting for them, reporting each score
+     * as soon as its vertex is done. The computation stops when the token or the returned future
+     * is cancelled.
+     *
+     * @param type     the index to compute
+     * @param graph    the compiled graph
+     * @param quota    the quota of every vertex by id
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @param token    the token cancelling the computation
+     * @param listener the listener receiving the score of every vertex
+     * @return the future raw scores by vertex id, failing with an {@link IndexComputationException}
+     * if a task fails
+     */
+    public CompletableFuture<double[]> computeRawAsync(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming,
+                                                       CancellationToken token, VertexListener listener) {
+        int[] targets = new int[graph.vertexCount()];
+        for (int id = 0; id < targets.length; id++) {
+            targets[id] = id;
+        }
+        return submitRaw(type, graph, quota, k, incoming, targets, token, ProgressListener.NONE, listener);
+    }
+
+    /**
+     * Starts computing scores of every vertex without waiting for them, reporting each raw score
+     * as soon as its vertex is done. Several computations started together share the executor, so
+     * for instance both indices of a graph are computed side by side.
+     *
+     * @param type      the index to compute
+     * @param graph     the compiled graph
+     * @param ql        threshold values for each node
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param token     the token cancelling the computation
+     * @param listener  the listener receiving the raw score of every vertex, by id in the graph
+     * @param <V>       the graph vertex type
+     * @return the future scores of every vertex
+     */
+    public <V> CompletableFuture<Map<V, Double>> computeScoresAsync(IndexType type, CompiledGraph<V> graph, Map<V, Double> ql, int k, boolean normalize,
+                                                                     boolean incoming, CancellationToken token, VertexListener listener) {
+        CompletableFuture<double[]> raw = computeRawAsync(type, graph, graph.toArray(ql), k, incoming, token, listener);
+        CompletableFuture<Map<V, Double>> scores = raw.thenApply(r -> graph.toMap(normalize ? normalize(r) : r));
+        scores.whenComplete((ignored, failure) -> {
+            if (failure instanceof CancellationException) {
+                raw.cancel(false);
+            }
+        });
+        return scores;
+    }
+
+    /* Submits the tasks computing raw scores of the target vertices */
+    private CompletableFuture<double[]> submitRaw(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming, int[] targets,
+                                                  CancellationToken token, ProgressListener listener, VertexListener vertexListener) {
+        Objects.requireNonNull(vertexListener, "Vertex listener cannot be null");
+        long start = startPhase();
+        validate(graph, quota, k);
+        int n = targets.length;
+        double[][] partials = new double[n][];
+        CancellationToken stop = new CancellationToken();
+        List<VertexTask> tasks = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            int target = i;
+            int vertex = targets[i];
+            int degree = graph.degree(vertex, incoming);
+            double coalitions = coalitions(degree, k);
+            int chunks = chunks(degree, coalitions);
+            int[] bounds = chunks == 1 ? new int[]{0, degree} : type.split(degree, k, chunks);
+            partials[target] = new double[chunks];
+            for (int c = 0; c < chunks; c++) {
+                int chunk = c;
+                tasks.add(new VertexTask(target, vertex, coalitions / chunks, () -> {
+                    double[] weights = new double[degree];
+                    int size = graph.coalitionWeights(vertex, incoming, weights);
+                    partials[target][chunk] = type.score(new CoalitionCounter(k, stop), weights, size, quota[vertex],
+                            bounds[chunk], bounds[chunk + 1]);
+                }));
+            }
+        }
+        double[] raw = new double[n];
+        IntConsumer vertexDone = target -> {
+            for (double partial : partials[target]) {
+                raw[target] += partial;
+            }
+            vertexListener.onVertex(targets[target], raw[target]);
+        };
+        endPhase(IndexMetrics.Phase.SCHEDULE, start);
+        CompletableFuture<Void> outcome = submitAll(tasks, n, token, stop, listener, vertexDone);
+        CompletableFuture<double[]> result = outcome.thenApply(ignored -> raw);
+        result.whenComplete((ignored, failure) -> {
+            // cancelling the returned future cancels the computation
+            if (failure instanceof CancellationException) {
+                outcome.cancel(false);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Computes raw scores of every vertex for several evaluators from one enumeration of the
+     * coalitions of every vertex.
+     *
+     * @param graph      the compiled graph
+     * @param quota      the quota of every vertex by id
+     * @param k          the maximum cardinality of critical sets (groups)
+     * @param incoming   if true incoming paths are used, otherwise outgoing paths
+     * @param evaluators the factories of the evaluators
+     * @return the raw scores, result[e][id] being the score of the vertex id by the e-th evaluator
+     */
+    public double[][] evaluate(CompiledGraph<?> graph, double[] quota, int k, boolean incoming, List<CoalitionEvaluator.Factory> evaluators) {
+        return evaluate(graph, quota, k, incoming, evaluators, new CancellationToken(), ProgressListener.NONE);
+    }
+
+    /**
+     * Computes raw scores of every vertex for several evaluators from one enumeration of the
+     * coalitions of every vertex, reporting progress and stopping on cancellation.
+     *
+     * @param graph      the compiled graph
+     * @param quota      the quota of every vertex by id
+     * @param k          the maximum cardinality of critical sets (groups)
+     * @param incoming   if true incoming paths are used, otherwise outgoing paths
+     * @param evaluators the factories of the evaluators
+     * @param token      the token cancelling the computation
+     * @param listener   the listener receiving the progress
+     * @return the raw scores, result[e][id] being the score of the vertex id by the e-th evaluator
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     * @throws IndexComputationException                   if a task fails
+     */
+    public double[][] evaluate(CompiledGraph<?> graph, double[] quota, int k, boolean incoming, List<CoalitionEvaluator.Factory> evaluators,
+                               CancellationToken token, ProgressListener listener) {
+        long start = startPhase();
+        validate(graph, quota, k);
+        int n = graph.vertexCount();
+        int count = evaluators.size();
+        double[][][] partials = new double[n][][];
+        CancellationToken stop = new CancellationToken();
+        List<VertexTask> tasks = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            int vertex = id;
+            int degree = graph.degree(vertex, incoming);
+            double coalitions = coalitions(degree, k);
+            int chunks = chunks(degree, coalitions);
+            // chunks hold about the same number of coalitions, as for the Bundle Index
+            int[] bounds = chunks == 1 ? new int[]{0, degree} : IndexType.BUNDLE.split(degree, k, chunks);
+            partials[vertex] = new double[chunks][count];
+            for (int c = 0; c < chunks; c++) {
+                int chunk = c;
+                tasks.add(new VertexTask(vertex, vertex, coalitions / chunks, () -> {
+                    double[] weights = new double[degree];
+                    int size = graph.coalitionWeights(vertex, incoming, weights);
+                    CoalitionEvaluator[] active = new CoalitionEvaluator[count];
+                    for (int e = 0; e < count; e++) {
+                        active[e] = evaluators.get(e).create(quota[vertex]);
+                    }
+                    CoalitionEnumerator.Visitor fused = new CoalitionEnumerator.Visitor() {
+                        @Override
+                        public void visit(double[] w, int[] members, int coalitionSize, double sum) {
+                            for (CoalitionEvaluator evaluator : active) {
+                                evaluator.visit(w, members, coalitionSize, sum);
+                            }
+                        }
+
+                        @Override
+                        public void visitLast(double[] w, int[] members, int shared, double sum, int first, int end) {
+                            for (CoalitionEvaluator evaluator : active) {
+                                evaluator.visitLast(w, members, shared, sum, first, end);
+                            }
+                        }
+                    };
+                    new CoalitionEnumerator(k, stop).enumerate(weights, size, fused, bounds[chunk], bounds[chunk + 1]);
+                    for (int e = 0; e < count; e++) {
+                        partials[vertex][chunk][e] = active[e].result();
+                    }
+                }));
+            }
+        }
+        endPhase(IndexMetrics.Phase.SCHEDULE, start);
+        runAll(tasks, n, token, stop, listener);
+        double[][] raw = new double[count][n];
+        for (int id = 0; id < n; id++) {
+            for (double[] partial : partials[id]) {
+                for (int e = 0; e < count; e++) {
+                    raw[e][id] += partial[e];
+                }
+            }
+        }
+        return raw;
+    }
+
+    /**
+     * Computes scores of every vertex.
+     *
+     * @param type      the index to compute
+     * @param graph     the compiled graph
+     * @param ql        threshold values for each node
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param <V>       the graph vertex type
+     * @return the scores of every vertex
+     */
+    public <V> Map<V, Double> computeScores(IndexType type, CompiledGraph<V> graph, Map<V, Double> ql, int k, boolean normalize, boolean incoming) {
+        double[] raw = computeRaw(type, graph, graph.toArray(ql), k, incoming);
+        return graph.toMap(normalize ? normalize(raw) : raw);
+    }
+
+    /**
+     * Normalizes raw scores so that they sum up to one, timed as the normalization phase.
+     *
+     * @param raw the raw scores by vertex id
+     * @return the normalized scores
+     */
+    public double[] normalize(double[] raw) {
+        long start = startPhase();
+        double[] scores = Normalizer.normalizeScores(raw);
+        endPhase(IndexMetrics.Phase.NORMALIZE, start);
+        return scores;
+    }
+
+    /* Start time of a phase, read only if metrics are recorded */
+    long startPhase() {
+        return metrics == IndexMetrics.NOOP ? 0 : System.nanoTime();
+    }
+
+    void endPhase(IndexMetrics.Phase phase, long start) {
+        if (metrics != IndexMetrics.NOOP) {
+            metrics.onPhase(phase, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Runs tasks on the executor of the engine and waits for all of them.
+     *
+     * @param tasks the tasks
+     * @throws IndexComputationException if a task fails
+     */
+    void runAll(List<Runnable> tasks) {
+        List<VertexTask> wrapped = new ArrayList<>(tasks.size());
+        for (int i = 0; i < tasks.size(); i++) {
+            wrapped.add(new VertexTask(i, -1, 0, tasks.get(i)));
+        }
+        runAll(wrapped, tasks.size(), new CancellationToken(), null, ProgressListener.NONE);
+    }
+
+    /**
+     * Runs vertex tasks on the executor of the engine and waits for all of them.
+     *
+     * @param tasks    the tasks
+     * @param slots    the number of vertices the tasks score
+     * @param token    the token cancelling the computation
+     * @param stop     the token the tasks check while running, cancelled on failure, or null
+     * @param listener the listener receiving the progress
+     * @throws java.util.concurrent.CancellationException if the token is cancelled
+     * @throws IndexComputationException                   if a task fails
+     */
+    void runAll(List<VertexTask> tasks, int slots, CancellationToken token, CancellationToken stop, ProgressListener listener) {
+        join(submitAll(tasks, slots, token, stop, listener, null));
+    }
+
+    /**
+     * Submits vertex tasks to the executor of the engine. On the first failure or on cancellation
+     * the tasks not started yet are cancelled and the returned future completes at once, without
+     * waiting for the running ones, which are told to stop through the stop token.
+     *
+     * @param tasks      the tasks
+     * @param slots      the number of vertices the tasks score
+     * @param token      the token cancelling the computation
+     * @param stop       the token the tasks check while running, cancelled on failure, or null
+     * @param listener   the listener receiving the progress
+     * @param vertexDone called with the slot of every vertex whose tasks are all done, or null
+     * @return the future completing when all tasks are done
+     */
+    private CompletableFuture<Void> submitAll(List<VertexTask> tasks, int slots, CancellationToken token, CancellationToken stop,
+                                              ProgressListener listener, IntConsumer vertexDone) {
+        Objects.requireNonNull(token, "Cancellation token cannot be null");
+        Objects.requireNonNull(listener, "Progress listener cannot be null");
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        Runnable cancel = () -> outcome.completeExceptionally(new CancellationException("Index computation cancelled"));
+        token.register(cancel);
+        Progress progress = new Progress(tasks, slots, listener, vertexDone);
+        long start = startPhase();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length && !outcome.isDone(); i++) {
+            VertexTask task = tasks.get(i);
+            Runnable body = metrics == IndexMetrics.NOOP ? task.body : metrics.instrument(task.vertex, task.coalitions, task.body);
+            futures[i] = CompletableFuture.runAsync(() -> {
+                if (outcome.isDone()) {
+                    return;
+                }
+                try {
+                    body.run();
+                    if (progress.done(task)) {
+                        // timed before completing, so the phase is reported when the caller resumes
+                        endPhase(IndexMetrics.Phase.SCORE, start);
+                        outcome.complete(null);
+                    }
+                } catch (Throwable failure) {
+                    outcome.completeExceptionally(new IndexComputationException(task.vertex, failure));
+                }
+            }, executor);
+        }
+        if (futures.length == 0) {
+            endPhase(IndexMetrics.Phase.SCORE, start);
+            outcome.complete(null);
+        }
+        outcome.whenComplete((ignored, failure) -> {
+            token.unregister(cancel);
+            if (failure != null) {
+                if (stop != null) {
+                    stop.cancel();
+                }
+                for (CompletableFuture<?> future : futures) {
+                    if (future != null) {
+                        future.cancel(false);
+                    }
+                }
+            }
+        });
+        return outcome;
+    }
+
+    /* Waits for a computation, rethrowing its failure as is */
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    /* Number of candidate coalitions of cardinality not more than k among the given members */
+    private static double coalitions(int degree, int k) {
+        double coalitions = 0;
+        double binomial = 1;
+        for (int t = 0; t <= k && t <= degree; t++) {
+            coalitions += binomial;
+            binomial = binomial * (degree - t) / (t + 1);
+        }
+        return coalitions;
+    }
+
+    /* Number of chunks a vertex with the given number of candidate members is split into */
+    private int chunks(int degree, double coalitions) {
+        if (parallelism <= 1 || degree <= 1 || coalitions < SPLIT_THRESHOLD) {
+            return 1;
+        }
+        double byCost = Math.ceil(coalitions / SPLIT_THRESHOLD);
+        return (int) Math.min(Math.min(byCost, (double) parallelism * CHUNKS_PER_THREAD), degree);
+    }
+
+    /* Checks for the valid values of the parameters */
+    private static void validate(CompiledGraph<?> graph, double[] quota, int k) {
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        if (quota.length != graph.vertexCount()) {
+            throw new IllegalArgumentException("Vertices in graph and in q do not match");
+        }
+
+        if (k <= 0) {
+            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
+        }
+    }
+
+    /**
+     * Shuts down the thread pool created by the engine, if any. A caller-supplied executor is left
+     * running.
+     */
+    @Override
+    public void close() {
+        if (ownedExecutor != null) {
+            ownedExecutor.shutdown();
+        }
+    }
+
+    /**
+     * Task scoring one vertex, or one chunk of it
+     */
+    static final class VertexTask {
+        /**
+         * Index of the vertex among the vertices being scored
+         */
+        final int slot;
+        /**
+         * Id of the vertex, -1 if unknown
+         */
+        final int vertex;
+        /**
+         * Number of candidate coalitions the task evaluates
+         */
+        final double coalitions;
+        final Runnable body;
+
+        VertexTask(int slot, int vertex, double coalitions, Runnable body) {
+            this.slot = slot;
+            this.vertex = vertex;
+            this.coalitions = coalitions;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Progress of one computation, counting the pending chunks of every vertex
+     */
+    private static final class Progress {
+        private final AtomicIntegerArray pendingChunks;
+        private final AtomicInteger pendingTasks;
+        private final AtomicInteger verticesDone = new AtomicInteger();
+        private final DoubleAdder coalitionsDone = new DoubleAdder();
+        private final double coalitions;
+        private final int vertexCount;
+        private final ProgressListener listener;
+        private final IntConsumer vertexDone;
+        private final long start = System.nanoTime();
+
+        Progress(List<VertexTask> tasks, int vertexCount, ProgressListener listener, IntConsumer vertexDone) {
+            this.pendingChunks = new AtomicIntegerArray(vertexCount);
+            this.pendingTasks = new AtomicInteger(tasks.size());
+            this.vertexCount = vertexCount;
+            this.listener = listener;
+            this.vertexDone = vertexDone;
+            double total = 0;
+            for (VertexTask task : tasks) {
+                pendingChunks.incrementAndGet(task.slot);
+                total += task.coalitions;
+            }
+            this.coalitions = total;
+        }
+
+        /* Records a completed task, returning true if it was the last one */
+        boolean done(VertexTask task) {
+            coalitionsDone.add(task.coalitions);
+            if (pendingChunks.decrementAndGet(task.slot) != 0) {
+                return pendingTasks.decrementAndGet() == 0;
+            }
+            if (vertexDone != null) {
+                vertexDone.accept(task.slot);
+            }
+            if (listener != ProgressListener.NONE) {
+                double done = coalitionsDone.sum();
+                long elapsed = System.nanoTime() - start;
+                long remaining = done == 0 ? 0 : (long) (elapsed * Math.max(0, coalitions - done) / done);
+                listener.onProgress(verticesDone.incrementAndGet(), vertexCount, (long) done, remaining);
+            }
+            return pendingTasks.decrementAndGet() == 0;
+        }
+    }
+
+    /**
+     * Builder of {@link IndexEngine} instances. Without an executor the engine runs on the common
+     * fork/join pool.
+     */
+    public static class Builder {
+        private Executor executor;
+        private int numThreads;
+        private IndexMetrics metrics = IndexMetrics.NOOP;
+
+        private Builder() {
+        }
+
+        /**
+         * Runs vertex tasks on a caller-supplied executor, which stays owned by the caller.
+         *
+         * @param executor the executor
+         * @return this builder
+         */
+        public Builder executor(Executor executor) {
+            this.executor = Objects.requireNonNull(executor, "Executor cannot be null");
+            this.numThreads = 0;
+            return this;
+        }
+
+        /**
+         * Runs vertex tasks on a caller-supplied fork/join pool, which stays owned by the caller.
+         *
+         * @param pool the pool
+         * @return this builder
+         */
+        public Builder forkJoinPool(ForkJoinPool pool) {
+            return executor(pool);
+        }
+
+        /**
+         * Runs vertex tasks on a fixed thread pool owned by the engine and shut down on close.
+         *
+         * @param numThreads the number of threads reserved for computations
+         * @return this builder
+         */
+        public Builder numThreads(int numThreads) {
+            if (numThreads <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+            this.executor = null;
+            this.numThreads = numThreads;
+            return this;
+        }
+
+        /**
+         * Reports per-task and per-phase figures to the given metrics, none by default.
+         *
+         * @param metrics the metrics
+         * @return this builder
+         */
+        public Builder metrics(IndexMetrics metrics) {
+            this.metrics = Objects.requireNonNull(metrics, "Metrics cannot be null");
+            return this;
+        }
+
+        /**
+         * Creates the engine.
+         *
+         * @return the engine
+         */
+        public IndexEngine build() {
+            if (numThreads > 0) {
+                ExecutorService pool = Executors.newFixedThreadPool(numThreads);
+                return new IndexEngine(pool, pool, numThreads, metrics);
+            }
+            Executor target = executor == null ? ForkJoinPool.commonPool() : executor;
+            return new IndexEngine(target, null, parallelism(target), metrics);
+        }
+
+        /* Best guess of the number of threads of an executor */
+        private static int parallelism(Executor executor) {
+            if (executor instanceof ForkJoinPool) {
+                return ((ForkJoinPool) executor).getParallelism();
+            }
+            if (executor instanceof ThreadPoolExecutor) {
+                return ((ThreadPoolExecutor) executor).getMaximumPoolSize();
+            }
+            return Runtime.getRuntime().availableProcessors();
+        }
+    }
+}
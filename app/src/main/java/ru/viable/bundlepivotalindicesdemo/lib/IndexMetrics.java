@@ -0,0 +1,59 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Instrumentation hooks of the {@link IndexEngine}, for finding the vertices that dominate a
+ * computation, the load of the executor and the time spent in every phase. The engine calls the
+ * hooks only when metrics other than {@link #NOOP} are set, so disabled metrics cost nothing, not
+ * even a clock read. Hooks are called from the worker threads, possibly concurrently, and must be
+ * thread-safe.
+ */
+public interface IndexMetrics {
+
+    /**
+     * Metrics recording nothing, the default of an engine
+     */
+    IndexMetrics NOOP = new IndexMetrics() {
+    };
+
+    /**
+     * Phases of a computation
+     */
+    enum Phase {
+        /**
+         * Validating the parameters and planning the tasks of the vertices
+         */
+        SCHEDULE,
+        /**
+         * Enumerating and evaluating the coalitions of every vertex, from the submission of the
+         * first task to the completion of the last one, not reported for failed or cancelled
+         * computations; the two are fused into one pass over the coalitions and are not timed apart
+         */
+        SCORE,
+        /**
+         * Normalizing the raw scores
+         */
+        NORMALIZE
+    }
+
+    /**
+     * Wraps a task when it is submitted to the executor, for instance to time it; the returned
+     * task runs on a worker thread instead. Returns the task itself by default.
+     *
+     * @param vertex     the id of the vertex the task scores, -1 if unknown
+     * @param coalitions the number of candidate coalitions the task evaluates, 0 if unknown
+     * @param task       the task
+     * @return the task to run
+     */
+    default Runnable instrument(int vertex, double coalitions, Runnable task) {
+        return task;
+    }
+
+    /**
+     * Reports the duration of a phase of a computation.
+     *
+     * @param phase the phase
+     * @param nanos the duration in nanoseconds
+     */
+    default void onPhase(Phase phase, long nanos) {
+    }
+}
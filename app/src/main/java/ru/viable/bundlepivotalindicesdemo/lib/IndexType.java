@@ -0,0 +1,196 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.Arrays;
+
+/**
+ * Power indices computed by the {@link IndexEngine}.
+ */
+public enum IndexType {
+    /**
+     * Bundle Index, the number of winning coalitions
+     */
+    BUNDLE {
+        @Override
+        double score(CoalitionCounter counter, double[] weights, int n, double q, int from, int to) {
+            return counter.countWinning(weights, n, q, from, to);
+        }
+
+        @Override
+        CoalitionEvaluator.Factory evaluator() {
+            return CoalitionEvaluator.bundle();
+        }
+
+        @Override
+        double maxContribution(int size) {
+            return 1;
+        }
+
+        @Override
+        void scoreBySize(CoalitionCounter counter, double[] weights, int n, double q, double[] result) {
+            counter.countWinningBySize(weights, n, q, result);
+        }
+
+        @Override
+        void bounds(double[] weights, int n, double q, int k, double[] result) {
+            double[][] sums = extremeSums(weights, n, k);
+            double tolerance = tolerance(sums, q);
+            double binomial = 1;
+            for (int t = 0; t <= k && t <= n; t++) {
+                if (t == 1) {
+                    // a single member weighs exactly its weight
+                    double winners = 0;
+                    for (int i = 0; i < n; i++) {
+                        winners += weights[i] >= q ? 1 : 0;
+                    }
+                    result[0] += winners;
+                    result[1] += winners;
+                } else {
+                    // some coalition of t members wins iff the heaviest ones do, all win iff the lightest ones do
+                    result[0] += sums[1][t] >= q + tolerance ? binomial : 0;
+                    result[1] += sums[0][t] >= q - tolerance ? binomial : 0;
+                }
+                binomial = binomial * (n - t) / (t + 1);
+            }
+        }
+
+        @Override
+        int[] split(int n, int k, int chunks) {
+            // coalitions led by the member of rank j: sum of C(n - 1 - j, t) for t < k
+            double[] cost = new double[n];
+            double total = 0;
+            for (int j = 0; j < n; j++) {
+                int m = n - 1 - j;
+                double binomial = 1;
+                for (int t = 0; t < k && t <= m; t++) {
+                    cost[j] += binomial;
+                    binomial = binomial * (m - t) / (t + 1);
+                }
+                total += cost[j];
+            }
+            int[] bounds = new int[chunks + 1];
+            double prefix = 0;
+            int c = 1;
+            for (int j = 0; j < n && c < chunks; j++) {
+                prefix += cost[j];
+                if (prefix >= total * c / chunks) {
+                    bounds[c++] = j + 1;
+                }
+            }
+            for (; c <= chunks; c++) {
+                bounds[c] = n;
+            }
+            return bounds;
+        }
+    },
+    /**
+     * Pivotal Index, the size of every winning coalition times the number of its pivotal members
+     */
+    PIVOTAL {
+        @Override
+        double score(CoalitionCounter counter, double[] weights, int n, double q, int from, int to) {
+            return counter.countPivotal(weights, n, q, from, to);
+        }
+
+        @Override
+        CoalitionEvaluator.Factory evaluator() {
+            return CoalitionEvaluator.pivotal();
+        }
+
+        @Override
+        double maxContribution(int size) {
+            // every member pivotal
+            return (double) size * size;
+        }
+
+        @Override
+        void scoreBySize(CoalitionCounter counter, double[] weights, int n, double q, double[] result) {
+            counter.countPivotalBySize(weights, n, q, result);
+        }
+
+        @Override
+        void bounds(double[] weights, int n, double q, int k, double[] result) {
+            double[][] sums = extremeSums(weights, n, k);
+            double tolerance = tolerance(sums, q);
+            double binomial = n;
+            for (int t = 1; t <= k && t <= n; t++) {
+                if (t == 1) {
+                    // a single winning member is pivotal unless the empty coalition wins too
+                    double winners = 0;
+                    for (int i = 0; i < n; i++) {
+                        winners += weights[i] >= q && q > 0 ? 1 : 0;
+                    }
+                    result[0] += winners;
+                    result[1] += winners;
+                } else {
+                    // at most t pivotal members of weight t; none if some coalition of t - 1 members wins
+                    double most = (double) t * t * binomial;
+                    boolean allWin = sums[1][t] >= q + tolerance;
+                    boolean allPivotal = sums[0][t - 1] < q - tolerance;
+                    boolean someWin = sums[0][t] >= q - tolerance;
+                    boolean somePivotal = sums[1][t - 1] < q + tolerance;
+                    result[0] += allWin && allPivotal ? most : 0;
+                    result[1] += someWin && somePivotal ? most : 0;
+                }
+                binomial = binomial * (n - t) / (t + 1);
+            }
+        }
+
+        @Override
+        int[] split(int n, int k, int chunks) {
+            // every member costs the same two counts over the others
+            int[] bounds = new int[chunks + 1];
+            for (int c = 0; c <= chunks; c++) {
+                bounds[c] = (int) ((long) n * c / chunks);
+            }
+            return bounds;
+        }
+    };
+
+    /* Computes the part of the raw score of a vertex contributed by member ranks in [from, to) */
+    abstract double score(CoalitionCounter counter, double[] weights, int n, double q, int from, int to);
+
+    /* Returns the factory of evaluators computing the index one coalition at a time */
+    abstract CoalitionEvaluator.Factory evaluator();
+
+    /* Largest contribution of a single coalition of the cardinality to the raw score */
+    abstract double maxContribution(int size);
+
+    /* Computes the raw score of a vertex contributed by coalitions of each cardinality */
+    abstract void scoreBySize(CoalitionCounter counter, double[] weights, int n, double q, double[] result);
+
+    /*
+     * Adds a lower and an upper bound of the raw score of a vertex to result[0] and result[1],
+     * from its sorted member weights only
+     */
+    abstract void bounds(double[] weights, int n, double q, int k, double[] result);
+
+    /*
+     * Sums of the t heaviest, sums[0][t], and of the t lightest, sums[1][t], of the first n weights
+     * for t up to k
+     */
+    static double[][] extremeSums(double[] weights, int n, int k) {
+        double[] sorted = Arrays.copyOf(weights, n);
+        Arrays.sort(sorted);
+        int m = Math.min(k, n);
+        double[][] sums = new double[2][m + 1];
+        for (int t = 1; t <= m; t++) {
+            sums[0][t] = sums[0][t - 1] + sorted[n - t];
+            sums[1][t] = sums[1][t - 1] + sorted[t - 1];
+        }
+        return sums;
+    }
+
+    /* Margin around the quota absorbing the rounding of sums added in another order */
+    static double tolerance(double[][] sums, double q) {
+        double largest = Math.abs(q);
+        for (double[] extreme : sums) {
+            for (double sum : extreme) {
+                largest = Math.max(largest, Math.abs(sum));
+            }
+        }
+        return largest * 1e-12;
+    }
+
+    /* Splits member ranks 0..n into chunks of about the same cost, returning chunks + 1 bounds */
+    abstract int[] split(int n, int k, int chunks);
+}
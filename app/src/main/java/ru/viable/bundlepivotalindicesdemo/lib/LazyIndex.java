@@ -0,0 +1,301 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import org.jgrapht.alg.interfaces.VertexScoringAlgorithm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Lazy variant of {@link BundleIndex} and {@link PivotalIndex}. Nothing is computed on
+ * construction: raw scores are computed for the requested vertices only and cached. Normalized
+ * scores need the raw score of every vertex for the denominator, so the first normalized query
+ * completes the cache. A top-n query scores only the vertices that may rank among the top n.
+ *
+ * @param <V> the graph vertex type
+ */
+public class LazyIndex<V> implements VertexScoringAlgorithm<V, Double> {
+
+    /**
+     * Minimum number of vertices scored together by a top-n query
+     */
+    private static final int REFINE_BATCH = 64;
+    /**
+     * Number of vertices bounded by one task
+     */
+    private static final int BOUNDS_BATCH = 1 << 10;
+
+    /**
+     * The index to compute
+     */
+    protected final IndexType type;
+    /**
+     * Compiled snapshot of the graph used for scoring
+     */
+    protected final CompiledGraph<V> compiled;
+    /**
+     * The quota of every vertex by id
+     */
+    protected final double[] quota;
+    /**
+     * The maximum cardinality of subsets
+     */
+    protected final int k;
+    /**
+     * Whether to normalize scores
+     */
+    protected final boolean normalize;
+    /**
+     * Whether to use incoming or outgoing paths
+     */
+    protected final boolean incoming;
+    /**
+     * The IndexEngine for parallel computing
+     */
+    protected final IndexEngine engine;
+    /**
+     * The raw scores computed so far
+     */
+    private final Map<V, Double> raw = new ConcurrentHashMap<>();
+    /**
+     * The sum of all raw scores, once known
+     */
+    private volatile Double total;
+    /**
+     * Lower and upper bounds of the raw scores, once known
+     */
+    private volatile double[][] bounds;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param type      the index to compute
+     * @param compiled  the compiled graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param ql        threshold values for each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     */
+    public LazyIndex(IndexType type, CompiledGraph<V> compiled, int k, Map<V, Double> ql, boolean normalize, boolean incoming, IndexEngine engine) {
+        this.type = Objects.requireNonNull(type, "Index type cannot be null");
+        this.compiled = Objects.requireNonNull(compiled, "Compiled graph cannot be null");
+        this.k = k;
+        this.quota = compiled.toArray(ql);
+        this.normalize = normalize;
+        this.incoming = incoming;
+        this.engine = Objects.requireNonNull(engine, "Engine cannot be null");
+
+        if (ql.size() != compiled.vertexCount()) {
+            throw new IllegalArgumentException("Vertices in graph and in q do not match");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
+        }
+    }
+
+    /**
+     * Construct a new instance with quotas given by a policy.
+     *
+     * @param type      the index to compute
+     * @param compiled  the compiled graph
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param policy    the policy computing the threshold of each node
+     * @param normalize whether to normalize the index values
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param engine    the engine running the computations
+     */
+    public LazyIndex(IndexType type, CompiledGraph<V> compiled, int k, QuotaPolicy policy, boolean normalize, boolean incoming, IndexEngine engine) {
+        this(type, compiled, k, compiled.toMap(policy.compute(compiled)), normalize, incoming, engine);
+    }
+
+    /**
+     * Returns the raw score of a vertex, computing it if needed.
+     *
+     * @param v the vertex
+     * @return the raw score
+     */
+    public Double getRawScore(V v) {
+        return getRawScores(Collections.singleton(v)).get(v);
+    }
+
+    /**
+     * Returns the raw scores of the target vertices, computing the missing ones in one batch.
+     *
+     * @param targets the vertices to score
+     * @return the raw scores of the targets
+     */
+    public Map<V, Double> getRawScores(Collection<V> targets) {
+        List<V> missing = new ArrayList<>();
+        for (V v : targets) {
+            if (compiled.id(v) < 0) {
+                throw new IllegalArgumentException("Cannot return score of unknown vertex");
+            }
+            if (!raw.containsKey(v)) {
+                missing.add(v);
+            }
+        }
+        if (!missing.isEmpty()) {
+            int[] ids = new int[missing.size()];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = compiled.id(missing.get(i));
+            }
+            double[] scores = engine.computeRaw(type, compiled, quota, k, incoming, ids);
+            for (int i = 0; i < ids.length; i++) {
+                raw.put(missing.get(i), scores[i]);
+            }
+        }
+        Map<V, Double> result = new HashMap<>();
+        for (V v : targets) {
+            result.put(v, raw.get(v));
+        }
+        return result;
+    }
+
+    /**
+     * Returns the n vertices with the highest scores, highest first and equal scores by vertex id.
+     * Cheap lower and upper bounds of every raw score are computed from the sorted member weights
+     * of its vertex; only vertices whose upper bound reaches the n-th highest lower bound are
+     * scored exactly, best upper bounds first, and the frontier is raised after every batch.
+     * Normalization does not change the ranking, so normalized scores are not needed.
+     *
+     * @param n the number of vertices to return
+     * @return the top vertices, all of them with cached raw scores
+     */
+    public List<V> topN(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("Number of top vertices cannot be negative");
+        }
+        int count = compiled.vertexCount();
+        n = Math.min(n, count);
+        if (n == 0) {
+            return Collections.emptyList();
+        }
+        double[][] bounds = bounds();
+        double[] lower = new double[count];
+        double[] upper = new double[count];
+        for (int id = 0; id < count; id++) {
+            Double score = raw.get(compiled.vertex(id));
+            lower[id] = score != null ? score : bounds[0][id];
+            upper[id] = score != null ? score : bounds[1][id];
+        }
+        int batch = Math.max(n, REFINE_BATCH);
+        while (true) {
+            double[] sorted = lower.clone();
+            Arrays.sort(sorted);
+            double frontier = sorted[count - n];
+            List<Integer> candidates = new ArrayList<>();
+            for (int id = 0; id < count; id++) {
+                if (lower[id] != upper[id] && upper[id] >= frontier) {
+                    candidates.add(id);
+                }
+            }
+            if (candidates.isEmpty()) {
+                break;
+            }
+            candidates.sort((a, b) -> Double.compare(upper[b], upper[a]));
+            List<V> refined = new ArrayList<>();
+            for (int id : candidates.subList(0, Math.min(batch, candidates.size()))) {
+                refined.add(compiled.vertex(id));
+            }
+            for (Map.Entry<V, Double> entry : getRawScores(refined).entrySet()) {
+                int id = compiled.id(entry.getKey());
+                lower[id] = upper[id] = entry.getValue();
+            }
+        }
+        // the vertices above the frontier all have exact scores now
+        Integer[] ids = new Integer[count];
+        for (int id = 0; id < count; id++) {
+            ids[id] = id;
+        }
+        Arrays.sort(ids, (a, b) -> lower[a] != lower[b] ? Double.compare(lower[b], lower[a])
+                : Integer.compare(a, b));
+        List<V> top = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            V v = compiled.vertex(ids[i]);
+            raw.putIfAbsent(v, lower[ids[i]]);
+            top.add(v);
+        }
+        return top;
+    }
+
+    /* Lower and upper bounds of every raw score by vertex id, computed once */
+    private double[][] bounds() {
+        double[][] result = bounds;
+        if (result == null) {
+            int count = compiled.vertexCount();
+            double[][] computed = new double[2][count];
+            List<Runnable> tasks = new ArrayList<>();
+            for (int from = 0; from < count; from += BOUNDS_BATCH) {
+                int start = from;
+                int end = Math.min(count, from + BOUNDS_BATCH);
+                tasks.add(() -> {
+                    double[] pair = new double[2];
+                    for (int id = start; id < end; id++) {
+                        double[] weights = new double[compiled.degree(id, incoming)];
+                        int size = compiled.coalitionWeights(id, incoming, weights);
+                        pair[0] = pair[1] = 0;
+                        type.bounds(weights, size, quota[id], k, pair);
+                        computed[0][id] = pair[0];
+                        computed[1][id] = pair[1];
+                    }
+                });
+            }
+            engine.runAll(tasks);
+            bounds = result = computed;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the scores of the target vertices. Raw scores of the targets are computed first;
+     * if scores are normalized, the remaining vertices are computed as well.
+     *
+     * @param targets the vertices to score
+     * @return the scores of the targets
+     */
+    public Map<V, Double> getScores(Collection<V> targets) {
+        Map<V, Double> result = getRawScores(targets);
+        if (normalize) {
+            double sum = total();
+            int n = compiled.vertexCount();
+            result.replaceAll((v, score) -> sum == 0 ? 1.0 / n : score / sum);
+        }
+        return result;
+    }
+
+    /* Sum of all raw scores, the normalization denominator */
+    private double total() {
+        Double sum = total;
+        if (sum == null) {
+            double s = 0;
+            for (double score : getRawScores(compiled.vertices()).values()) {
+                s += score;
+            }
+            total = sum = s;
+        }
+        return sum;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<V, Double> getScores() {
+        return Collections.unmodifiableMap(getScores(compiled.vertices()));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Double getVertexScore(V v) {
+        return getScores(Collections.singleton(v)).get(v);
+    }
+}
@@ -0,0 +1,171 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link IndexMetrics} keeping counters and timers in memory: per vertex, per phase and for the
+ * executor as a whole. Vertices are told apart by id only, so per-vertex figures are meaningful
+ * for one graph per recorder. A recorder is thread-safe.
+ */
+public class MetricsRecorder implements IndexMetrics {
+
+    private final Map<Integer, VertexStats> vertices = new ConcurrentHashMap<>();
+    private final LongAdder[] phaseNanos = new LongAdder[Phase.values().length];
+    private final LongAdder[] phaseCounts = new LongAdder[Phase.values().length];
+    private final LongAdder tasks = new LongAdder();
+    private final LongAdder queuedNanos = new LongAdder();
+    private final LongAdder runNanos = new LongAdder();
+
+    public MetricsRecorder() {
+        for (int i = 0; i < phaseNanos.length; i++) {
+            phaseNanos[i] = new LongAdder();
+            phaseCounts[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public Runnable instrument(int vertex, double coalitions, Runnable task) {
+        long submitted = System.nanoTime();
+        return () -> {
+            long started = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long run = System.nanoTime() - started;
+                tasks.increment();
+                queuedNanos.add(started - submitted);
+                runNanos.add(run);
+                if (vertex >= 0) {
+                    vertices.computeIfAbsent(vertex, VertexStats::new).add(coalitions, run);
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onPhase(Phase phase, long nanos) {
+        phaseNanos[phase.ordinal()].add(nanos);
+        phaseCounts[phase.ordinal()].increment();
+    }
+
+    /**
+     * Returns the number of tasks run.
+     *
+     * @return the number of tasks
+     */
+    public long tasks() {
+        return tasks.sum();
+    }
+
+    /**
+     * Returns the total time tasks waited in the queue of the executor, a measure of its load.
+     *
+     * @return the waiting time in nanoseconds
+     */
+    public long queuedNanos() {
+        return queuedNanos.sum();
+    }
+
+    /**
+     * Returns the total running time of the tasks, across all threads.
+     *
+     * @return the running time in nanoseconds
+     */
+    public long runNanos() {
+        return runNanos.sum();
+    }
+
+    /**
+     * Returns the total duration of a phase over all computations.
+     *
+     * @param phase the phase
+     * @return the duration in nanoseconds
+     */
+    public long phaseNanos(Phase phase) {
+        return phaseNanos[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the number of times a phase was run.
+     *
+     * @param phase the phase
+     * @return the number of runs
+     */
+    public long phaseCount(Phase phase) {
+        return phaseCounts[phase.ordinal()].sum();
+    }
+
+    /**
+     * Returns the figures of a vertex.
+     *
+     * @param vertex the vertex id
+     * @return the figures, null if no task of the vertex ran
+     */
+    public VertexStats vertex(int vertex) {
+        return vertices.get(vertex);
+    }
+
+    /**
+     * Returns the vertices with the longest total running time, the stragglers of a computation.
+     *
+     * @param n the number of vertices
+     * @return the figures of the slowest vertices, slowest first
+     */
+    public List<VertexStats> slowest(int n) {
+        List<VertexStats> stats = new ArrayList<>(vertices.values());
+        stats.sort((a, b) -> Long.compare(b.runNanos(), a.runNanos()));
+        return stats.subList(0, Math.min(n, stats.size()));
+    }
+
+    /**
+     * Figures of one vertex, summed over its chunks and computations
+     */
+    public static final class VertexStats {
+        private final int vertex;
+        private long tasks;
+        private double coalitions;
+        private long runNanos;
+
+        VertexStats(int vertex) {
+            this.vertex = vertex;
+        }
+
+        synchronized void add(double coalitions, long runNanos) {
+            this.tasks++;
+            this.coalitions += coalitions;
+            this.runNanos += runNanos;
+        }
+
+        /**
+         * @return the vertex id
+         */
+        public int vertex() {
+            return vertex;
+        }
+
+        /**
+         * @return the number of tasks run for the vertex
+         */
+        public synchronized long tasks() {
+            return tasks;
+        }
+
+        /**
+         * @return the number of candidate coalitions evaluated
+         */
+        public synchronized double coalitions() {
+            return coalitions;
+        }
+
+        /**
+         * @return the total running time of the tasks of the vertex in nanoseconds
+         */
+        public synchronized long runNanos() {
+            return runNanos;
+        }
+    }
+}
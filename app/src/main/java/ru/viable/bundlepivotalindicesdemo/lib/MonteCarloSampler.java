@@ -0,0 +1,433 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Estimates raw scores by sampling coalitions instead of enumerating them, for k and degrees where
+ * enumeration is infeasible. The coalitions of a vertex are split by cardinality. Cardinalities
+ * with few coalitions are enumerated exactly, from the others coalitions are drawn uniformly and
+ * the mean contribution is scaled by the binomial coefficient, the number of coalitions of that
+ * cardinality. Cardinalities too small to ever reach the quota contribute nothing and are skipped.
+ * The variance of the samples gives a normal confidence interval around every estimate. Draws
+ * that all contribute the same do not rule out rare other contributions, so the variance of a
+ * cardinality is at least that of a contribution of the largest possible value with the
+ * rule-of-three probability 3 / draws; a vertex with rare winning coalitions keeps sampling until
+ * enough of them are seen or the time budget is spent.
+ * <p>
+ * Sampling runs in rounds over all vertices still short of the target relative error, one engine
+ * task per vertex and round, each round drawing more coalitions than the previous one. It stops
+ * when every vertex reached the target or when the time budget is spent, so a budget is shared
+ * fairly among the vertices. Every vertex draws from its own generator split from the seed, so a
+ * given seed gives the same estimates on any number of threads, unless the time budget stops
+ * sampling first. A sampler is immutable and thread-safe.
+ */
+public class MonteCarloSampler {
+
+    /**
+     * Default value for the confidence level
+     */
+    public static final double CONFIDENCE_DEFAULT = 0.95;
+
+    /**
+     * Number of coalitions up to which the smallest cardinalities of a vertex are enumerated
+     */
+    public static final int EXACT_LIMIT = 1 << 12;
+
+    /**
+     * Number of coalitions drawn per vertex in the first round, doubled every round up to
+     * {@link #MAX_ROUND_SAMPLES}
+     */
+    private static final int ROUND_SAMPLES = 1 << 12;
+    private static final int MAX_ROUND_SAMPLES = 1 << 18;
+    /**
+     * Number of draws between two checks of the time budget
+     */
+    private static final int CHECK_INTERVAL = 1 << 10;
+    /**
+     * Number of unseen events whose absence in m draws bounds their probability by RULE_OF_THREE / m
+     * at 95% confidence
+     */
+    private static final double RULE_OF_THREE = 3;
+    /**
+     * Number of rounds before an estimate may be accepted, so that a first round without any
+     * winning coalition does not end sampling
+     */
+    private static final int MIN_ROUNDS = 2;
+
+    private final long seed;
+    private final double confidence;
+    private final double z;
+    private final double targetRelativeError;
+    private final long budgetNanos;
+
+    private MonteCarloSampler(Builder builder) {
+        this.seed = builder.seed;
+        this.confidence = builder.confidence;
+        this.z = normalQuantile(0.5 + builder.confidence / 2);
+        this.targetRelativeError = builder.targetRelativeError;
+        this.budgetNanos = builder.budgetNanos;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @return the builder
+     */
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Estimates raw scores of every vertex.
+     *
+     * @param engine   the engine running the sampling tasks
+     * @param type     the index to estimate
+     * @param graph    the compiled graph
+     * @param quota    the quota of every vertex by id
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @return the estimated raw scores
+     */
+    public ApproximateScores estimate(IndexEngine engine, IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming) {
+        Objects.requireNonNull(engine, "Engine cannot be null");
+        Objects.requireNonNull(graph, "Graph cannot be null");
+        if (quota.length != graph.vertexCount()) {
+            throw new IllegalArgumentException("Vertices in graph and in q do not match");
+        }
+        if (k <= 0) {
+            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
+        }
+        long start = System.nanoTime();
+        CoalitionEvaluator.Factory factory = type.evaluator();
+        SplittableRandom root = new SplittableRandom(seed);
+        int n = graph.vertexCount();
+        VertexSampler[] samplers = new VertexSampler[n];
+        List<VertexSampler> active = new ArrayList<>(n);
+        for (int id = 0; id < n; id++) {
+            samplers[id] = new VertexSampler(type, graph, id, incoming, k, factory.create(quota[id]), root.split());
+            active.add(samplers[id]);
+        }
+        for (int round = 0; !active.isEmpty(); round++) {
+            int draws = Math.min(ROUND_SAMPLES << Math.min(round, 6), MAX_ROUND_SAMPLES);
+            // every vertex gets a full first round, later ones stop at the deadline
+            long budget = round == 0 || budgetNanos == 0 ? Long.MAX_VALUE : budgetNanos;
+            List<Runnable> tasks = new ArrayList<>(active.size());
+            for (VertexSampler sampler : active) {
+                tasks.add(() -> sampler.sample(factory, quota, draws, start, budget));
+            }
+            engine.runAll(tasks);
+            boolean expired = budgetNanos > 0 && System.nanoTime() - start >= budgetNanos;
+            List<VertexSampler> next = new ArrayList<>(active.size());
+            for (VertexSampler sampler : active) {
+                if (!expired && !converged(sampler, round)) {
+                    next.add(sampler);
+                }
+            }
+            active = next;
+        }
+        double[] estimates = new double[n];
+        double[] halfWidths = new double[n];
+        long[] samples = new long[n];
+        boolean converged = targetRelativeError > 0;
+        for (int id = 0; id < n; id++) {
+            estimates[id] = samplers[id].estimate();
+            halfWidths[id] = z * Math.sqrt(samplers[id].variance());
+            samples[id] = samplers[id].samples();
+            converged &= halfWidths[id] <= targetRelativeError * estimates[id];
+        }
+        return new ApproximateScores(estimates, halfWidths, samples, confidence, converged);
+    }
+
+    private boolean converged(VertexSampler sampler, int round) {
+        if (sampler.exact()) {
+            return true;
+        }
+        if (targetRelativeError == 0 || round + 1 < MIN_ROUNDS) {
+            return false;
+        }
+        return z * Math.sqrt(sampler.variance()) <= targetRelativeError * sampler.estimate();
+    }
+
+    /* Inverse of the standard normal distribution function, Acklam's approximation */
+    static double normalQuantile(double p) {
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low || p > 1 - low) {
+            double q = Math.sqrt(-2 * Math.log(p < low ? p : 1 - p));
+            double x = (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+            return p < low ? x : -x;
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Sampling state of one vertex, touched by one task at a time
+     */
+    private static final class VertexSampler {
+        private final IndexType type;
+        private final CompiledGraph<?> graph;
+        private final int vertex;
+        private final boolean incoming;
+        private final int k;
+        private final SplittableRandom random;
+        /**
+         * Evaluator of the coalitions enumerated exactly
+         */
+        private final CoalitionEvaluator exactEvaluator;
+
+        private double[] weights;
+        private int[] members;
+        private int n;
+        /**
+         * Smallest sampled cardinality, the smaller ones being enumerated
+         */
+        private int first;
+        /**
+         * Number of coalitions of every sampled cardinality
+         */
+        private double[] coalitions;
+        private CoalitionEvaluator[] evaluators;
+        private long[] draws;
+        private double[] sums;
+        private double[] squares;
+
+        VertexSampler(IndexType type, CompiledGraph<?> graph, int vertex, boolean incoming, int k,
+                CoalitionEvaluator exactEvaluator, SplittableRandom random) {
+            this.type = type;
+            this.graph = graph;
+            this.vertex = vertex;
+            this.incoming = incoming;
+            this.k = k;
+            this.exactEvaluator = exactEvaluator;
+            this.random = random;
+        }
+
+        /* Enumerates the small cardinalities on the first call, then draws coalitions of the others */
+        void sample(CoalitionEvaluator.Factory factory, double[] quota, int count, long start, long budgetNanos) {
+            if (weights == null) {
+                initialize(factory, quota[vertex]);
+            }
+            int strata = coalitions.length;
+            if (strata == 0) {
+                return;
+            }
+            // Neyman allocation: draws proportional to the count times the deviation of a cardinality
+            double[] share = new double[strata];
+            double total = 0;
+            for (int s = 0; s < strata; s++) {
+                share[s] = coalitions[s] * Math.sqrt(sampleVariance(s));
+                total += share[s];
+            }
+            for (int s = 0; s < strata; s++) {
+                int allotted = total == 0 ? count / strata
+                        : (int) Math.max(count / (4 * strata), count * share[s] / total);
+                for (int done = 0; done < allotted; done += CHECK_INTERVAL) {
+                    if (System.nanoTime() - start >= budgetNanos) {
+                        return;
+                    }
+                    draw(s, Math.min(CHECK_INTERVAL, allotted - done));
+                }
+            }
+        }
+
+        private void initialize(CoalitionEvaluator.Factory factory, double q) {
+            weights = new double[graph.degree(vertex, incoming)];
+            n = graph.coalitionWeights(vertex, incoming, weights);
+            members = new int[n];
+            for (int i = 0; i < n; i++) {
+                members[i] = i;
+            }
+            int last = Math.min(k, n);
+            double enumerated = 0;
+            double binomial = 1;
+            first = 0;
+            while (first <= last && enumerated + binomial <= EXACT_LIMIT) {
+                enumerated += binomial;
+                binomial = binomial * (n - first) / (first + 1);
+                first++;
+            }
+            new CoalitionEnumerator(first - 1).enumerate(weights, n, exactEvaluator);
+            // no coalition wins below the cardinality whose heaviest members reach the quota
+            double[][] extremes = IndexType.extremeSums(weights, n, last);
+            double tolerance = IndexType.tolerance(extremes, q);
+            while (first <= last && extremes[0][first] < q - tolerance) {
+                binomial = binomial * (n - first) / (first + 1);
+                first++;
+            }
+            int strata = last - first + 1;
+            coalitions = new double[strata];
+            evaluators = new CoalitionEvaluator[strata];
+            draws = new long[strata];
+            sums = new double[strata];
+            squares = new double[strata];
+            for (int s = 0; s < strata; s++) {
+                coalitions[s] = binomial;
+                binomial = binomial * (n - first - s) / (first + s + 1);
+                evaluators[s] = factory.create(q);
+            }
+        }
+
+        /* Draws coalitions of one cardinality by a partial shuffle of the members */
+        private void draw(int stratum, int count) {
+            int size = first + stratum;
+            CoalitionEvaluator evaluator = evaluators[stratum];
+            for (int c = 0; c < count; c++) {
+                double sum = 0;
+                for (int i = 0; i < size; i++) {
+                    int j = i + random.nextInt(n - i);
+                    int member = members[j];
+                    members[j] = members[i];
+                    members[i] = member;
+                    sum += weights[member];
+                }
+                double before = evaluator.result();
+                evaluator.visit(weights, members, size, sum);
+                double value = evaluator.result() - before;
+                sums[stratum] += value;
+                squares[stratum] += value * value;
+            }
+            draws[stratum] += count;
+        }
+
+        boolean exact() {
+            return coalitions.length == 0;
+        }
+
+        double estimate() {
+            double estimate = exactEvaluator.result();
+            for (int s = 0; s < coalitions.length; s++) {
+                if (draws[s] > 0) {
+                    estimate += coalitions[s] * sums[s] / draws[s];
+                }
+            }
+            return estimate;
+        }
+
+        /* Variance of the estimate, the exact part having none */
+        double variance() {
+            double variance = 0;
+            for (int s = 0; s < coalitions.length; s++) {
+                variance += draws[s] == 0 ? Double.POSITIVE_INFINITY
+                        : coalitions[s] * coalitions[s] * sampleVariance(s) / draws[s];
+            }
+            return variance;
+        }
+
+        long samples() {
+            long samples = 0;
+            for (long count : draws) {
+                samples += count;
+            }
+            return samples;
+        }
+
+        /* Variance of one draw, not less than the rule-of-three bound of unseen contributions */
+        private double sampleVariance(int s) {
+            long m = draws[s];
+            double range = type.maxContribution(first + s);
+            double p = Math.min(RULE_OF_THREE / Math.max(m, 1), 0.5);
+            double floor = range * range * p * (1 - p);
+            if (m < 2) {
+                return floor;
+            }
+            return Math.max(floor, (squares[s] - sums[s] * sums[s] / m) / (m - 1));
+        }
+    }
+
+    /**
+     * Builder of {@link MonteCarloSampler} instances. At least a target relative error or a time
+     * budget is required; with both, sampling stops at whichever comes first.
+     */
+    public static class Builder {
+        private long seed;
+        private double confidence = CONFIDENCE_DEFAULT;
+        private double targetRelativeError;
+        private long budgetNanos;
+
+        private Builder() {
+        }
+
+        /**
+         * Sets the seed of the random generators, 0 by default.
+         *
+         * @param seed the seed
+         * @return this builder
+         */
+        public Builder seed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Sets the probability that a confidence interval holds the exact score.
+         *
+         * @param confidence the confidence level, in (0, 1)
+         * @return this builder
+         */
+        public Builder confidence(double confidence) {
+            if (!(confidence > 0 && confidence < 1)) {
+                throw new IllegalArgumentException("Confidence must be between 0 and 1");
+            }
+            this.confidence = confidence;
+            return this;
+        }
+
+        /**
+         * Samples every vertex until the half-width of its confidence interval is at most the
+         * given fraction of its estimate.
+         *
+         * @param targetRelativeError the target relative error
+         * @return this builder
+         */
+        public Builder targetRelativeError(double targetRelativeError) {
+            if (!(targetRelativeError > 0)) {
+                throw new IllegalArgumentException("Target relative error must be positive");
+            }
+            this.targetRelativeError = targetRelativeError;
+            return this;
+        }
+
+        /**
+         * Stops sampling once the given wall-clock time has elapsed. Every vertex completes its
+         * first round regardless of the budget.
+         *
+         * @param budget the time budget
+         * @param unit   the unit of the budget
+         * @return this builder
+         */
+        public Builder timeBudget(long budget, TimeUnit unit) {
+            if (budget <= 0) {
+                throw new IllegalArgumentException("Time budget must be positive");
+            }
+            this.budgetNanos = unit.toNanos(budget);
+            return this;
+        }
+
+        /**
+         * Creates the sampler.
+         *
+         * @return the sampler
+         */
+        public MonteCarloSampler build() {
+            if (targetRelativeError == 0 && budgetNanos == 0) {
+                throw new IllegalStateException("Either a target relative error or a time budget is required");
+            }
+            return new MonteCarloSampler(this);
+        }
+    }
+}
@@ -25,4 +25,22 @@ public class Normalizer<V, E> {
         }
         return unitScores;
     }
+
+    /**
+     * Normalizes raw scores given by vertex id so that they sum up to one.
+     *
+     * @param scores the raw scores
+     * @return the normalized scores
+     */
+    public static double[] normalizeScores(double[] scores) {
+        double[] unitScores = new double[scores.length];
+        double maxScore = 0;
+        for (double score : scores) {
+            maxScore += score;
+        }
+        for (int i = 0; i < scores.length; i++) {
+            unitScores[i] = maxScore == 0 ? 1.0 / scores.length : scores[i] / maxScore;
+        }
+        return unitScores;
+    }
 }
@@ -0,0 +1,26 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Receives the progress of a computation of the {@link IndexEngine}, once per vertex completed.
+ * Calls come from the worker threads, possibly concurrently, so a listener must be thread-safe and
+ * return quickly.
+ */
+public interface ProgressListener {
+
+    /**
+     * Listener ignoring the progress
+     */
+    ProgressListener NONE = (verticesDone, vertexCount, coalitions, remainingNanos) -> {
+    };
+
+    /**
+     * Reports the progress of a computation.
+     *
+     * @param verticesDone   the number of vertices scored so far
+     * @param vertexCount    the number of vertices to score
+     * @param coalitions     the number of candidate coalitions evaluated so far
+     * @param remainingNanos the estimated remaining time in nanoseconds, extrapolated from the
+     *                       coalitions evaluated so far
+     */
+    void onProgress(int verticesDone, int vertexCount, long coalitions, long remainingNanos);
+}
@@ -0,0 +1,166 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import org.jgrapht.Graph;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Rule assigning a quota to every vertex: the same absolute value, or a fraction of the total
+ * weight of the incoming or outgoing edges, optionally overridden for some vertices. Quotas are
+ * computed in one pass over the edges, parallel edges all counting, and in parallel for large
+ * graphs. Policies are immutable.
+ */
+public final class QuotaPolicy {
+
+    /**
+     * Number of edges from which quotas are computed in parallel
+     */
+    public static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private enum Base {
+        ABSOLUTE, IN_WEIGHT, OUT_WEIGHT
+    }
+
+    private final Base base;
+    private final double value;
+    private final Map<Object, Double> overrides;
+
+    private QuotaPolicy(Base base, double value, Map<Object, Double> overrides) {
+        if (Double.isNaN(value)) {
+            throw new IllegalArgumentException("Quota cannot be NaN");
+        }
+        this.base = base;
+        this.value = value;
+        this.overrides = overrides;
+    }
+
+    /**
+     * Gives every vertex the same quota.
+     *
+     * @param quota the quota
+     * @return the policy
+     */
+    public static QuotaPolicy absolute(double quota) {
+        return new QuotaPolicy(Base.ABSOLUTE, quota, Collections.emptyMap());
+    }
+
+    /**
+     * Gives every vertex a fraction of the total weight of its incoming edges.
+     *
+     * @param fraction the fraction, 0.45 in the demo
+     * @return the policy
+     */
+    public static QuotaPolicy fractionOfInWeight(double fraction) {
+        return new QuotaPolicy(Base.IN_WEIGHT, fraction, Collections.emptyMap());
+    }
+
+    /**
+     * Gives every vertex a fraction of the total weight of its outgoing edges.
+     *
+     * @param fraction the fraction
+     * @return the policy
+     */
+    public static QuotaPolicy fractionOfOutWeight(double fraction) {
+        return new QuotaPolicy(Base.OUT_WEIGHT, fraction, Collections.emptyMap());
+    }
+
+    /**
+     * Returns a policy giving the listed vertices fixed quotas and the others the quota of this
+     * policy. Overrides of vertices missing from a graph are rejected when computing its quotas.
+     *
+     * @param quotas the quotas by vertex
+     * @return the policy
+     */
+    public QuotaPolicy withOverrides(Map<?, Double> quotas) {
+        Map<Object, Double> merged = new HashMap<>(overrides);
+        for (Map.Entry<?, Double> entry : quotas.entrySet()) {
+            merged.put(entry.getKey(), Objects.requireNonNull(entry.getValue(), "Quota cannot be null"));
+        }
+        return new QuotaPolicy(base, value, Collections.unmodifiableMap(merged));
+    }
+
+    /**
+     * Computes the quotas of a compiled graph.
+     *
+     * @param graph the compiled graph
+     * @return the quota of every vertex by id
+     */
+    public double[] compute(CompiledGraph<?> graph) {
+        int n = graph.vertexCount();
+        double[] quota = new double[n];
+        IntStream ids = IntStream.range(0, n);
+        if (base != Base.ABSOLUTE && graph.edgeCount() >= PARALLEL_THRESHOLD) {
+            ids = ids.parallel();
+        }
+        ids.forEach(id -> quota[id] = base(graph, id));
+        for (Map.Entry<Object, Double> entry : overrides.entrySet()) {
+            int id = indexOf(graph, entry.getKey());
+            if (id < 0) {
+                throw new IllegalArgumentException("Quota override for unknown vertex " + entry.getKey());
+            }
+            quota[id] = entry.getValue();
+        }
+        return quota;
+    }
+
+    /**
+     * Computes the quotas of a graph from its incoming or outgoing edge sets.
+     *
+     * @param graph the graph
+     * @param <V>   the graph vertex type
+     * @param <E>   the graph edge type
+     * @return the quota of every vertex
+     */
+    public <V, E> Map<V, Double> compute(Graph<V, E> graph) {
+        Set<V> vertices = graph.vertexSet();
+        for (Object v : overrides.keySet()) {
+            if (!vertices.contains(v)) {
+                throw new IllegalArgumentException("Quota override for unknown vertex " + v);
+            }
+        }
+        Stream<V> stream = vertices.stream();
+        if (base != Base.ABSOLUTE && graph.edgeSet().size() >= PARALLEL_THRESHOLD) {
+            stream = stream.parallel();
+        }
+        return stream.collect(Collectors.toMap(Function.identity(), v -> {
+            Double override = overrides.get(v);
+            return override != null ? override : base(graph, v);
+        }));
+    }
+
+    private double base(CompiledGraph<?> graph, int id) {
+        switch (base) {
+            case IN_WEIGHT:
+                return value * graph.inWeight(id);
+            case OUT_WEIGHT:
+                return value * graph.outWeight(id);
+            default:
+                return value;
+        }
+    }
+
+    private <V, E> double base(Graph<V, E> graph, V v) {
+        if (base == Base.ABSOLUTE) {
+            return value;
+        }
+        double sum = 0;
+        for (E edge : base == Base.IN_WEIGHT ? graph.incomingEdgesOf(v) : graph.outgoingEdgesOf(v)) {
+            sum += graph.getEdgeWeight(edge);
+        }
+        return value * sum;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <V> int indexOf(CompiledGraph<V> graph, Object v) {
+        // vertices are only looked up by equality, a vertex of another type is just unknown
+        return graph.id((V) v);
+    }
+}
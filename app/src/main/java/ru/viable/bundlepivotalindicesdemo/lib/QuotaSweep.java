@@ -0,0 +1,252 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes an index for many quotas from a single enumeration of the coalitions of every vertex.
+ * A coalition of weight s wins for every quota q &lt;= s, and its member of weight w is pivotal for
+ * every quota in (s - w, s], so each coalition adds its contribution to a whole range of the sorted
+ * quotas of its vertex at once. The quotas at which a raw score changes, its breakpoints, are the
+ * ends of these ranges.
+ *
+ * @param <V> the graph vertex type
+ */
+public class QuotaSweep<V> {
+
+    /**
+     * The index to compute
+     */
+    protected final IndexType type;
+    /**
+     * Compiled snapshot of the graph used for scoring
+     */
+    protected final CompiledGraph<V> compiled;
+    /**
+     * The maximum cardinality of subsets
+     */
+    protected final int k;
+    /**
+     * Whether to use incoming or outgoing paths
+     */
+    protected final boolean incoming;
+    /**
+     * The IndexEngine for parallel computing
+     */
+    protected final IndexEngine engine;
+
+    /**
+     * Construct a new instance.
+     *
+     * @param type     the index to compute
+     * @param compiled the compiled graph
+     * @param k        the maximum cardinality of critical sets (groups)
+     * @param incoming if true incoming paths are used, otherwise outgoing paths
+     * @param engine   the engine running the computations
+     */
+    public QuotaSweep(IndexType type, CompiledGraph<V> compiled, int k, boolean incoming, IndexEngine engine) {
+        this.type = Objects.requireNonNull(type, "Index type cannot be null");
+        this.compiled = Objects.requireNonNull(compiled, "Compiled graph cannot be null");
+        this.k = k;
+        this.incoming = incoming;
+        this.engine = Objects.requireNonNull(engine, "Engine cannot be null");
+        if (k <= 0) {
+            throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
+        }
+    }
+
+    /**
+     * Computes scores for quotas given as fractions of a base value of every vertex, typically its
+     * in-weight.
+     *
+     * @param base      the base value of every vertex
+     * @param fractions the quota fractions
+     * @param normalize whether to normalize the index values
+     * @return the scores of every vertex, one map per fraction
+     */
+    public List<Map<V, Double>> scores(Map<V, Double> base, double[] fractions, boolean normalize) {
+        double[] values = compiled.toArray(base);
+        double[][] quotas = new double[fractions.length][values.length];
+        for (int j = 0; j < fractions.length; j++) {
+            for (int v = 0; v < values.length; v++) {
+                quotas[j][v] = fractions[j] * values[v];
+            }
+        }
+        return scores(quotas, normalize);
+    }
+
+    /**
+     * Computes scores for per-vertex quota vectors.
+     *
+     * @param quotas    the quota vectors, quotas[j][id] being the j-th quota of the vertex id
+     * @param normalize whether to normalize the index values
+     * @return the scores of every vertex, one map per quota vector
+     */
+    public List<Map<V, Double>> scores(double[][] quotas, boolean normalize) {
+        double[][] raw = computeRaw(quotas);
+        List<Map<V, Double>> result = new ArrayList<>();
+        for (double[] scores : raw) {
+            result.add(compiled.toMap(normalize ? Normalizer.normalizeScores(scores) : scores));
+        }
+        return result;
+    }
+
+    /**
+     * Computes raw scores for per-vertex quota vectors.
+     *
+     * @param quotas the quota vectors, quotas[j][id] being the j-th quota of the vertex id
+     * @return the raw scores, raw[j][id] being the score of the vertex id for the j-th quota
+     */
+    public double[][] computeRaw(double[][] quotas) {
+        int n = compiled.vertexCount();
+        for (double[] quota : quotas) {
+            if (quota.length != n) {
+                throw new IllegalArgumentException("Vertices in graph and in q do not match");
+            }
+        }
+        double[][] raw = new double[quotas.length][n];
+        List<Runnable> tasks = new ArrayList<>();
+        for (int id = 0; id < n; id++) {
+            int vertex = id;
+            tasks.add(() -> {
+                double[] scores = sweep(vertex, quotas);
+                for (int j = 0; j < quotas.length; j++) {
+                    raw[j][vertex] = scores[j];
+                }
+            });
+        }
+        engine.runAll(tasks);
+        return raw;
+    }
+
+    /* Scores one vertex for every quota from one enumeration of its coalitions */
+    private double[] sweep(int vertex, double[][] quotas) {
+        int count = quotas.length;
+        Integer[] order = new Integer[count];
+        for (int j = 0; j < count; j++) {
+            order[j] = j;
+        }
+        Arrays.sort(order, (a, b) -> Double.compare(quotas[a][vertex], quotas[b][vertex]));
+        double[] sorted = new double[count];
+        for (int j = 0; j < count; j++) {
+            sorted[j] = quotas[order[j]][vertex];
+        }
+
+        // diff[j] accumulates contributions starting at the j-th smallest quota
+        double[] diff = new double[count + 1];
+        double[] weights = new double[compiled.degree(vertex, incoming)];
+        int n = compiled.coalitionWeights(vertex, incoming, weights);
+        new CoalitionEnumerator(k).enumerate(weights, n, (w, members, size, sum) -> {
+            int upper = countAtMost(sorted, sum);
+            if (upper == 0) {
+                return;
+            }
+            if (type == IndexType.BUNDLE) {
+                diff[0]++;
+                diff[upper]--;
+                return;
+            }
+            for (int i = 0; i < size; i++) {
+                int lower = countAtMost(sorted, sum - w[members[i]]);
+                if (lower < upper) {
+                    diff[lower] += size;
+                    diff[upper] -= size;
+                }
+            }
+        });
+
+        double[] scores = new double[count];
+        double running = 0;
+        for (int j = 0; j < count; j++) {
+            running += diff[j];
+            scores[order[j]] = running;
+        }
+        return scores;
+    }
+
+    /* Number of sorted values not greater than x */
+    private static int countAtMost(double[] sorted, double x) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] <= x) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the quotas at which the raw score of a vertex changes, in ascending order. The score
+     * for a quota q depends only on the breakpoints not less than q, and it is constant between
+     * two consecutive breakpoints, each breakpoint belonging to the interval below it.
+     *
+     * @param v the vertex
+     * @return the breakpoints
+     */
+    public double[] breakpoints(V v) {
+        int vertex = compiled.id(v);
+        if (vertex < 0) {
+            throw new IllegalArgumentException("Unknown vertex " + v);
+        }
+        double[] weights = new double[compiled.degree(vertex, incoming)];
+        int n = compiled.coalitionWeights(vertex, incoming, weights);
+        Breakpoints points = new Breakpoints(type == IndexType.PIVOTAL);
+        new CoalitionEnumerator(k).enumerate(weights, n, points);
+        points.compact();
+        return Arrays.copyOf(points.values, points.size);
+    }
+
+    /*
+     * Collects the ends of the quota ranges coalitions contribute to. The buffer is sorted and
+     * deduplicated whenever it fills up and only grows if that frees less than half of it, so it
+     * holds at most twice the distinct values rather than one value per coalition.
+     */
+    private static class Breakpoints implements CoalitionEnumerator.Visitor {
+        private final boolean pivotal;
+        private double[] values = new double[16];
+        private int size;
+
+        Breakpoints(boolean pivotal) {
+            this.pivotal = pivotal;
+        }
+
+        @Override
+        public void visit(double[] weights, int[] members, int coalitionSize, double sum) {
+            add(sum);
+            if (pivotal) {
+                for (int i = 0; i < coalitionSize; i++) {
+                    add(sum - weights[members[i]]);
+                }
+            }
+        }
+
+        private void add(double value) {
+            if (size == values.length) {
+                compact();
+                if (size > values.length / 2) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+            }
+            values[size++] = value;
+        }
+
+        /* Sorts the values and drops duplicates */
+        void compact() {
+            Arrays.sort(values, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; i++) {
+                if (distinct == 0 || values[i] != values[distinct - 1]) {
+                    values[distinct++] = values[i];
+                }
+            }
+            size = distinct;
+        }
+    }
+}
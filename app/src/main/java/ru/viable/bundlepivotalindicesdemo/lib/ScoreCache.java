@@ -0,0 +1,325 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Persistent cache of index scores. Entries are keyed by a SHA-256 hash of everything the scores
+ * depend on: the vertices and edges of the compiled graph, the quotas, k, the direction, the
+ * normalization and the index type. Each entry is one file in the cache directory, so entries
+ * computed elsewhere, for instance for bundled assets at build time, can be copied in with
+ * {@link #seed(String, InputStream)}.
+ * <p>
+ * The cache holds at most a given number of bytes and evicts the least recently used entries
+ * beyond it. The last use of an entry is its file modification time, so the order survives
+ * restarts. A cache is thread-safe within one process.
+ */
+public class ScoreCache {
+
+    /**
+     * File name extension of cache entries
+     */
+    public static final String EXTENSION = ".scores";
+
+    /**
+     * Version of the key and entry layout, bumped whenever cached scores may change
+     */
+    private static final int FORMAT_VERSION = 1;
+    private static final int MAGIC = 0x53435231;
+    private static final int HEADER_SIZE = 8;
+
+    private final File directory;
+    private final long maxBytes;
+    /**
+     * Entry sizes by key, from least to most recently used
+     */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * @param directory the directory holding the entries, created if missing
+     * @param maxBytes  the maximum total size of the entries
+     * @throws IOException if the directory cannot be created
+     */
+    public ScoreCache(File directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files != null) {
+            Arrays.sort(files, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+            for (File file : files) {
+                String name = file.getName();
+                entries.put(name.substring(0, name.length() - EXTENSION.length()), file.length());
+                totalBytes += file.length();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * Computes the cache key of a set of scores.
+     *
+     * @param type      the index
+     * @param graph     the compiled graph
+     * @param quota     the quota of every vertex by id
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param normalize if true the scores are normalized
+     * @return the key, a lowercase hexadecimal string
+     */
+    public static String key(IndexType type, CompiledGraph<?> graph, double[] quota, int k, boolean incoming, boolean normalize) {
+        if (quota.length != graph.vertexCount()) {
+            throw new IllegalArgumentException("Vertices in graph and in q do not match");
+        }
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 << 13);
+        buffer.putInt(FORMAT_VERSION).putInt(type.ordinal()).putInt(k)
+                .put((byte) (incoming ? 1 : 0)).put((byte) (normalize ? 1 : 0))
+                .putInt(graph.vertexCount()).putInt(graph.edgeCount());
+        for (int id = 0; id < graph.vertexCount(); id++) {
+            byte[] name = String.valueOf(graph.vertex(id)).getBytes(StandardCharsets.UTF_8);
+            ensure(digest, buffer, Integer.BYTES);
+            buffer.putInt(name.length);
+            for (int i = 0; i < name.length; ) {
+                ensure(digest, buffer, 1);
+                int count = Math.min(buffer.remaining(), name.length - i);
+                buffer.put(name, i, count);
+                i += count;
+            }
+        }
+        for (int offset : graph.offsets(false)) {
+            ensure(digest, buffer, Integer.BYTES);
+            buffer.putInt(offset);
+        }
+        for (int target : graph.neighbours(false)) {
+            ensure(digest, buffer, Integer.BYTES);
+            buffer.putInt(target);
+        }
+        for (double weight : graph.weights(false)) {
+            ensure(digest, buffer, Double.BYTES);
+            buffer.putDouble(weight);
+        }
+        for (double q : quota) {
+            ensure(digest, buffer, Double.BYTES);
+            buffer.putDouble(q);
+        }
+        buffer.flip();
+        digest.update(buffer);
+        StringBuilder key = new StringBuilder();
+        for (byte b : digest.digest()) {
+            key.append(Character.forDigit((b >> 4) & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+        }
+        return key.toString();
+    }
+
+    /**
+     * Returns cached scores, or computes and caches them on a miss.
+     *
+     * @param engine    the engine computing the scores on a miss
+     * @param type      the index
+     * @param graph     the compiled graph
+     * @param quota     the quota of every vertex by id
+     * @param k         the maximum cardinality of critical sets (groups)
+     * @param incoming  if true incoming paths are used, otherwise outgoing paths
+     * @param normalize if true the scores are normalized
+     * @return the scores by vertex id
+     * @throws IOException if the cache cannot be read or written
+     */
+    public double[] getScores(IndexEngine engine, IndexType type, CompiledGraph<?> graph, double[] quota,
+                              int k, boolean incoming, boolean normalize) throws IOException {
+        String key = key(type, graph, quota, k, incoming, normalize);
+        double[] scores = get(key);
+        if (scores == null) {
+            scores = engine.computeRaw(type, graph, quota, k, incoming);
+            if (normalize) {
+                scores = Normalizer.normalizeScores(scores);
+            }
+            put(key, scores);
+        }
+        return scores;
+    }
+
+    /**
+     * Returns the scores of an entry. A corrupt or truncated entry is evicted and reported as
+     * missing, so the caller recomputes and stores it again.
+     *
+     * @param key the key
+     * @return the scores, null if the entry is missing or unreadable
+     * @throws IOException if a corrupt entry cannot be deleted
+     */
+    public double[] get(String key) throws IOException {
+        File file;
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return null;
+            }
+            file = file(key);
+            file.setLastModified(System.currentTimeMillis());
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Corrupt cache entry " + key);
+            }
+            int length = in.readInt();
+            if (length < 0 || HEADER_SIZE + (long) length * Double.BYTES != file.length()) {
+                throw new IOException("Truncated cache entry " + key);
+            }
+            double[] scores = new double[length];
+            for (int i = 0; i < scores.length; i++) {
+                scores[i] = in.readDouble();
+            }
+            return scores;
+        } catch (FileNotFoundException e) {
+            // evicted or deleted meanwhile
+            synchronized (this) {
+                Long size = entries.remove(key);
+                totalBytes -= size == null ? 0 : size;
+            }
+            return null;
+        } catch (IOException e) {
+            // corrupt, truncated or short read
+            synchronized (this) {
+                Long size = entries.remove(key);
+                totalBytes -= size == null ? 0 : size;
+                if (file.exists() && !file.delete()) {
+                    throw new IOException("Cannot delete corrupt cache entry " + key, e);
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Stores the scores of an entry, evicting least recently used entries beyond the size limit.
+     * Scores larger than the whole cache are not stored.
+     *
+     * @param key    the key
+     * @param scores the scores by vertex id
+     * @throws IOException if the entry cannot be written
+     */
+    public void put(String key, double[] scores) throws IOException {
+        long size = HEADER_SIZE + (long) scores.length * Double.BYTES;
+        if (size > maxBytes) {
+            return;
+        }
+        File temp = File.createTempFile("entry", ".tmp", directory);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(scores.length);
+            for (double score : scores) {
+                out.writeDouble(score);
+            }
+        }
+        commit(key, temp, size);
+    }
+
+    /**
+     * Copies an entry computed elsewhere into the cache, unless it is present already.
+     *
+     * @param key the key
+     * @param in  the content of the entry file, left open
+     * @throws IOException if the entry cannot be written
+     */
+    public void seed(String key, InputStream in) throws IOException {
+        synchronized (this) {
+            if (entries.containsKey(key)) {
+                return;
+            }
+        }
+        File temp = File.createTempFile("entry", ".tmp", directory);
+        long size = 0;
+        try (OutputStream out = new FileOutputStream(temp)) {
+            byte[] buffer = new byte[1 << 13];
+            for (int count; (count = in.read(buffer)) > 0; ) {
+                out.write(buffer, 0, count);
+                size += count;
+            }
+        }
+        if (size > maxBytes) {
+            temp.delete();
+            return;
+        }
+        commit(key, temp, size);
+    }
+
+    /**
+     * Returns the total size of the entries.
+     *
+     * @return the size in bytes
+     */
+    public synchronized long size() {
+        return totalBytes;
+    }
+
+    /**
+     * Tells whether an entry is present, without counting as a use.
+     *
+     * @param key the key
+     * @return true if the entry is cached
+     */
+    public synchronized boolean contains(String key) {
+        return entries.containsKey(key);
+    }
+
+    private synchronized void commit(String key, File temp, long size) throws IOException {
+        File file = file(key);
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot store cache entry " + key);
+        }
+        Long previous = entries.put(key, size);
+        totalBytes += size - (previous == null ? 0 : previous);
+        evict();
+    }
+
+    /* Deletes least recently used entries until the cache fits */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            file(entry.getKey()).delete();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    private File file(String key) {
+        return new File(directory, key + EXTENSION);
+    }
+
+    private static void ensure(MessageDigest digest, ByteBuffer buffer, int bytes) {
+        if (buffer.remaining() < bytes) {
+            buffer.flip();
+            digest.update(buffer);
+            buffer.clear();
+        }
+    }
+}
@@ -2,9 +2,13 @@ package ru.viable.bundlepivotalindicesdemo.lib;
 
 import org.jgrapht.Graph;
 
+import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class SubsetsGenerator<V, E> {
 
@@ -33,4 +37,83 @@ public class SubsetsGenerator<V, E> {
         }
 
     }
+
+    /**
+     * Generates all subsets of cardinality not more than k of the neighbours of a vertex. Only the
+     * vertices adjacent to the given one are enumerated, so the cost is C(deg, k) instead of C(n, k).
+     *
+     * @param graph    the input graph
+     * @param vertex   the vertex whose neighbourhood is used
+     * @param k        the maximum cardinality of subsets
+     * @param incoming if true sources of incoming edges are used, otherwise targets of outgoing edges
+     * @return the set of subsets, including the empty one
+     */
+    public Set<Set<V>> generateNeighbourSubsets(Graph<V, E> graph, V vertex, int k, boolean incoming) {
+        List<V> neighbours = neighbours(graph, vertex, incoming);
+        Set<Set<V>> result = new HashSet<>();
+        generateNeighbourSubsets(neighbours, result, new HashSet<>(), 0, k);
+        return result;
+    }
+
+    /**
+     * Streams the subsets of cardinality not more than k of the neighbours of a vertex. The stream
+     * is backed by a {@link CoalitionSpliterator}, so parallel streams split it into chunks holding
+     * the same number of subsets whatever the degree of the vertex.
+     *
+     * @param graph    the input graph
+     * @param vertex   the vertex whose neighbourhood is used
+     * @param k        the maximum cardinality of subsets
+     * @param incoming if true sources of incoming edges are used, otherwise targets of outgoing edges
+     * @param parallel whether the stream is parallel
+     * @return the stream of subsets, including the empty one
+     */
+    public Stream<Set<V>> neighbourSubsets(Graph<V, E> graph, V vertex, int k, boolean incoming, boolean parallel) {
+        List<V> neighbours = neighbours(graph, vertex, incoming);
+        return StreamSupport.stream(new CoalitionSpliterator(neighbours.size(), k), parallel)
+                .map(members -> {
+                    Set<V> subset = new HashSet<>();
+                    for (int member : members) {
+                        subset.add(neighbours.get(member));
+                    }
+                    return subset;
+                });
+    }
+
+    /**
+     * Returns the distinct neighbours of a vertex, the vertex itself excluded.
+     *
+     * @param graph    the input graph
+     * @param vertex   the vertex whose neighbourhood is used
+     * @param incoming if true sources of incoming edges are used, otherwise targets of outgoing edges
+     * @return the list of neighbours in edge iteration order
+     */
+    public List<V> neighbours(Graph<V, E> graph, V vertex, boolean incoming) {
+        Set<V> neighbours = new LinkedHashSet<>();
+        if (incoming) {
+            for (E edge : graph.incomingEdgesOf(vertex)) {
+                neighbours.add(graph.getEdgeSource(edge));
+            }
+        } else {
+            for (E edge : graph.outgoingEdgesOf(vertex)) {
+                neighbours.add(graph.getEdgeTarget(edge));
+            }
+        }
+        neighbours.remove(vertex);
+        return new ArrayList<>(neighbours);
+    }
+
+    private void generateNeighbourSubsets(List<V> neighbours, Set<Set<V>> result, Set<V> currentSubset, int index, int k) {
+        result.add(new HashSet<>(currentSubset));
+
+        if (currentSubset.size() == k) {
+            return;
+        }
+
+        for (int i = index; i < neighbours.size(); i++) {
+            V element = neighbours.get(i);
+            currentSubset.add(element);
+            generateNeighbourSubsets(neighbours, result, currentSubset, i + 1, k);
+            currentSubset.remove(element);
+        }
+    }
 }
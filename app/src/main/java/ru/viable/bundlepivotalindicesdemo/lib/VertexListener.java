@@ -0,0 +1,23 @@
+package ru.viable.bundlepivotalindicesdemo.lib;
+
+/**
+ * Receives the raw score of every vertex as soon as it is computed by an asynchronous computation
+ * of the {@link IndexEngine}, in no particular order. Calls come from the worker threads, possibly
+ * concurrently, so a listener must be thread-safe and return quickly.
+ */
+public interface VertexListener {
+
+    /**
+     * Listener ignoring the scores
+     */
+    VertexListener NONE = (id, raw) -> {
+    };
+
+    /**
+     * Reports the raw score of a vertex.
+     *
+     * @param id  the vertex id
+     * @param raw the raw score
+     */
+    void onVertex(int id, double raw);
+}
@@ -0,0 +1,72 @@
+package ru.viable.bundlepivotalindicesdemo.lib.io;
+
+import java.util.Collections;
+import java.util.List;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * A graph read by {@link GmlReader}: the compiled graph, whose vertices are the node ids, the node
+ * labels and the total edge weights gathered while parsing.
+ */
+public final class GmlGraph {
+    private final CompiledGraph<String> graph;
+    private final List<String> labels;
+    private final double[] inWeights;
+    private final double[] outWeights;
+
+    GmlGraph(CompiledGraph<String> graph, List<String> labels, double[] inWeights, double[] outWeights) {
+        this.graph = graph;
+        this.labels = Collections.unmodifiableList(labels);
+        this.inWeights = inWeights;
+        this.outWeights = outWeights;
+    }
+
+    /**
+     * Returns the compiled graph.
+     *
+     * @return the graph
+     */
+    public CompiledGraph<String> graph() {
+        return graph;
+    }
+
+    /**
+     * Returns the label of a node.
+     *
+     * @param id the vertex id
+     * @return the label, null if the node has none
+     */
+    public String label(int id) {
+        return labels.get(id);
+    }
+
+    /**
+     * Returns the labels of all nodes by vertex id.
+     *
+     * @return the labels, null entries for nodes without one
+     */
+    public List<String> labels() {
+        return labels;
+    }
+
+    /**
+     * Returns the total weight of the edges entering every vertex, parallel edges and self-loops
+     * included.
+     *
+     * @return the in-weights by vertex id
+     */
+    public double[] inWeights() {
+        return inWeights;
+    }
+
+    /**
+     * Returns the total weight of the edges leaving every vertex, parallel edges and self-loops
+     * included.
+     *
+     * @return the out-weights by vertex id
+     */
+    public double[] outWeights() {
+        return outWeights;
+    }
+}
@@ -0,0 +1,442 @@
+package ru.viable.bundlepivotalindicesdemo.lib.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * Single-pass GML reader for the files written by {@code CustomGmlExporter} and the bundled assets. Nodes
+ * are read from their id and label keys, edges from their source, target and weight keys, every
+ * other key is skipped. Edges are collected straight into primitive arrays and compiled at the end,
+ * without building an intermediate graph.
+ * <p>
+ * Node ids must be integers. Edges without a weight weigh 1, and a decimal comma is accepted in
+ * weights for files written by the old exporter, which formatted them with the default locale.
+ * The entities {@code &quot;} and {@code &amp;} in labels are decoded.
+ */
+public final class GmlReader {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int EOF = -1;
+    private static final int OPEN = 0;
+    private static final int CLOSE = 1;
+    private static final int WORD = 2;
+    private static final int STRING = 3;
+
+    private static final byte[] GRAPH = key("graph");
+    private static final byte[] NODE = key("node");
+    private static final byte[] EDGE = key("edge");
+    private static final byte[] ID = key("id");
+    private static final byte[] LABEL = key("label");
+    private static final byte[] SOURCE = key("source");
+    private static final byte[] TARGET = key("target");
+    private static final byte[] WEIGHT = key("weight");
+
+    /**
+     * Exactly representable powers of ten
+     */
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private final InputStream in;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private int position;
+    private int limit;
+    private int line = 1;
+    private byte[] token = new byte[64];
+    private int tokenLength;
+
+    private final IdMap ids = new IdMap();
+    private final List<String> vertices = new ArrayList<>();
+    private final List<String> labels = new ArrayList<>();
+    private final BitSet declared = new BitSet();
+    private double[] inWeights = new double[16];
+    private double[] outWeights = new double[16];
+    private int[] sources = new int[16];
+    private int[] targets = new int[16];
+    private double[] weights = new double[16];
+    private int edgeCount;
+
+    private GmlReader(InputStream in) {
+        this.in = in;
+    }
+
+    /**
+     * Reads a graph. The stream is read to the end but not closed.
+     *
+     * @param in the GML content
+     * @return the graph
+     * @throws IOException if reading fails or the content is not valid GML
+     */
+    public static GmlGraph read(InputStream in) throws IOException {
+        return new GmlReader(in).parse();
+    }
+
+    private GmlGraph parse() throws IOException {
+        for (int type = next(); type != EOF; type = next()) {
+            if (type != WORD) {
+                throw error("Expected a key");
+            }
+            boolean graph = is(GRAPH);
+            int value = value();
+            if (graph && value == OPEN) {
+                readGraph();
+            } else {
+                skip(value);
+            }
+        }
+        int n = vertices.size();
+        if (declared.cardinality() != n) {
+            int id = declared.nextClearBit(0);
+            throw new IOException("Edge refers to undeclared node " + vertices.get(id));
+        }
+        CompiledGraph<String> graph = CompiledGraph.of(vertices, sources, targets, weights, edgeCount);
+        return new GmlGraph(graph, labels, Arrays.copyOf(inWeights, n), Arrays.copyOf(outWeights, n));
+    }
+
+    private void readGraph() throws IOException {
+        for (int type = next(); type != CLOSE; type = next()) {
+            if (type != WORD) {
+                throw error("Expected a key");
+            }
+            boolean node = is(NODE);
+            boolean edge = !node && is(EDGE);
+            int value = value();
+            if (node && value == OPEN) {
+                readNode();
+            } else if (edge && value == OPEN) {
+                readEdge();
+            } else {
+                skip(value);
+            }
+        }
+    }
+
+    private void readNode() throws IOException {
+        long gmlId = 0;
+        boolean hasId = false;
+        String label = null;
+        for (int type = next(); type != CLOSE; type = next()) {
+            if (type != WORD) {
+                throw error("Expected a key");
+            }
+            int key = is(ID) ? 0 : is(LABEL) ? 1 : -1;
+            int value = value();
+            if (key == 0 && value == WORD) {
+                gmlId = parseLong();
+                hasId = true;
+            } else if (key == 1 && value != OPEN) {
+                label = new String(token, 0, tokenLength, StandardCharsets.UTF_8)
+                        .replace("&quot;", "\"").replace("&amp;", "&");
+            } else {
+                skip(value);
+            }
+        }
+        if (!hasId) {
+            throw error("Node without id");
+        }
+        int id = vertex(gmlId);
+        if (declared.get(id)) {
+            throw error("Duplicate node " + gmlId);
+        }
+        declared.set(id);
+        labels.set(id, label);
+    }
+
+    private void readEdge() throws IOException {
+        long source = 0;
+        long target = 0;
+        int found = 0;
+        double weight = 1;
+        for (int type = next(); type != CLOSE; type = next()) {
+            if (type != WORD) {
+                throw error("Expected a key");
+            }
+            int key = is(SOURCE) ? 1 : is(TARGET) ? 2 : is(WEIGHT) ? 3 : -1;
+            int value = value();
+            if (key == 1 && value == WORD) {
+                source = parseLong();
+                found |= 1;
+            } else if (key == 2 && value == WORD) {
+                target = parseLong();
+                found |= 2;
+            } else if (key == 3 && value == WORD) {
+                weight = parseDouble();
+            } else {
+                skip(value);
+            }
+        }
+        if (found != 3) {
+            throw error("Edge without source or target");
+        }
+        if (edgeCount == sources.length) {
+            int capacity = edgeCount * 2;
+            sources = Arrays.copyOf(sources, capacity);
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+        }
+        int u = vertex(source);
+        int v = vertex(target);
+        sources[edgeCount] = u;
+        targets[edgeCount] = v;
+        weights[edgeCount] = weight;
+        edgeCount++;
+        outWeights[u] += weight;
+        inWeights[v] += weight;
+    }
+
+    /* Id of a node, allocated on its first occurrence */
+    private int vertex(long gmlId) {
+        int id = ids.get(gmlId);
+        if (id < 0) {
+            id = vertices.size();
+            ids.put(gmlId, id);
+            vertices.add(Long.toString(gmlId));
+            labels.add(null);
+            if (id == inWeights.length) {
+                inWeights = Arrays.copyOf(inWeights, id * 2);
+                outWeights = Arrays.copyOf(outWeights, id * 2);
+            }
+        }
+        return id;
+    }
+
+    /* Reads the value of a key */
+    private int value() throws IOException {
+        int type = next();
+        if (type == EOF || type == CLOSE) {
+            throw error("Missing value");
+        }
+        return type;
+    }
+
+    /* Skips a value, a list is skipped up to its closing bracket */
+    private void skip(int type) throws IOException {
+        int depth = type == OPEN ? 1 : 0;
+        while (depth > 0) {
+            type = next();
+            if (type == EOF) {
+                throw error("Unclosed list");
+            }
+            depth += type == OPEN ? 1 : type == CLOSE ? -1 : 0;
+        }
+    }
+
+    /* Reads the next token, words and strings are left in the token buffer */
+    private int next() throws IOException {
+        int c;
+        while (true) {
+            c = read();
+            if (c < 0) {
+                return EOF;
+            }
+            if (c == '\n') {
+                line++;
+            } else if (c == '#') {
+                while ((c = read()) >= 0 && c != '\n') {
+                    // comment
+                }
+                line++;
+            } else if (c > ' ') {
+                break;
+            }
+        }
+        if (c == '[') {
+            return OPEN;
+        }
+        if (c == ']') {
+            return CLOSE;
+        }
+        tokenLength = 0;
+        if (c == '"') {
+            while ((c = read()) != '"') {
+                if (c < 0) {
+                    throw error("Unterminated string");
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                append(c);
+            }
+            return STRING;
+        }
+        append(c);
+        while (true) {
+            if (position == limit && !fill()) {
+                break;
+            }
+            c = buffer[position];
+            if (c <= ' ' && c >= 0 || c == '[' || c == ']') {
+                break;
+            }
+            position++;
+            append(c);
+        }
+        return WORD;
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++] & 0xff;
+    }
+
+    private boolean fill() throws IOException {
+        int count = in.read(buffer, 0, buffer.length);
+        if (count <= 0) {
+            return false;
+        }
+        position = 0;
+        limit = count;
+        return true;
+    }
+
+    private void append(int c) {
+        if (tokenLength == token.length) {
+            token = Arrays.copyOf(token, tokenLength * 2);
+        }
+        token[tokenLength++] = (byte) c;
+    }
+
+    private boolean is(byte[] key) {
+        if (tokenLength != key.length) {
+            return false;
+        }
+        for (int i = 0; i < tokenLength; i++) {
+            if (token[i] != key[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long parseLong() throws IOException {
+        int i = 0;
+        boolean negative = false;
+        if (tokenLength > 1 && (token[0] == '-' || token[0] == '+')) {
+            negative = token[0] == '-';
+            i++;
+        }
+        if (tokenLength - i > 18) {
+            throw error("Id out of range");
+        }
+        long value = 0;
+        for (; i < tokenLength; i++) {
+            int digit = token[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("Node id must be an integer");
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    /* Plain decimals up to 15 digits are exact in a long and divided by an exact power of ten, which
+     * rounds correctly; anything else goes through Double.parseDouble */
+    private double parseDouble() throws IOException {
+        int i = 0;
+        boolean negative = false;
+        if (tokenLength > 1 && (token[0] == '-' || token[0] == '+')) {
+            negative = token[0] == '-';
+            i++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int scale = -1;
+        for (; i < tokenLength; i++) {
+            int c = token[i];
+            if (c >= '0' && c <= '9') {
+                mantissa = mantissa * 10 + (c - '0');
+                digits++;
+            } else if ((c == '.' || c == ',') && scale < 0) {
+                scale = 0;
+                continue;
+            } else {
+                digits = Integer.MAX_VALUE;
+                break;
+            }
+            if (scale >= 0) {
+                scale++;
+            }
+        }
+        if (digits == 0 || digits > 15) {
+            String text = new String(token, 0, tokenLength, StandardCharsets.ISO_8859_1).replace(',', '.');
+            try {
+                return Double.parseDouble(text);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number " + text);
+            }
+        }
+        double value = scale > 0 ? mantissa / POWERS_OF_TEN[scale] : mantissa;
+        return negative ? -value : value;
+    }
+
+    private IOException error(String message) {
+        return new IOException("Line " + line + ": " + message);
+    }
+
+    private static byte[] key(String key) {
+        return key.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Open addressing map from GML node ids to vertex ids.
+     */
+    private static final class IdMap {
+        private long[] keys = new long[64];
+        private int[] values = new int[64];
+        private int size;
+
+        /* Vertex id of a node, -1 if absent */
+        int get(long key) {
+            int mask = keys.length - 1;
+            for (int slot = hash(key) & mask; values[slot] != 0; slot = (slot + 1) & mask) {
+                if (keys[slot] == key) {
+                    return values[slot] - 1;
+                }
+            }
+            return -1;
+        }
+
+        void put(long key, int value) {
+            if (2 * (size + 1) > keys.length) {
+                long[] oldKeys = keys;
+                int[] oldValues = values;
+                keys = new long[oldKeys.length * 2];
+                values = new int[oldKeys.length * 2];
+                for (int i = 0; i < oldKeys.length; i++) {
+                    if (oldValues[i] != 0) {
+                        insert(oldKeys[i], oldValues[i]);
+                    }
+                }
+            }
+            insert(key, value + 1);
+            size++;
+        }
+
+        private void insert(long key, int storedValue) {
+            int mask = keys.length - 1;
+            int slot = hash(key) & mask;
+            while (values[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = key;
+            values[slot] = storedValue;
+        }
+
+        private static int hash(long key) {
+            long h = key * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,693 @@
+package ru.viable.bundlepivotalindicesdemo.lib.io;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * Binary snapshot of a compiled graph with optional node labels, quotas and named score vectors.
+ * A snapshot is read without parsing: every section is a memory-mapped little-endian array and
+ * the accessors read straight from it, so a graph is available as soon as it is mapped and only
+ * the parts actually touched are paged in. Sections are mapped one by one, so a single array may
+ * use up to 2 GB.
+ * <p>
+ * Layout: a header of six ints (magic, version, vertex count, edge count, section count, zero),
+ * a table of sections of (int kind, int tag, long offset, long length), then the sections, each
+ * aligned to 8 bytes. The sections are the vertex names and labels (int offsets and UTF-8 bytes),
+ * the outgoing and incoming rows as kept by {@link CompiledGraph}, the quotas and the scores,
+ * whose tag is the index of their name.
+ */
+public final class GraphSnapshot {
+
+    /**
+     * File name extension of snapshots, without the dot
+     */
+    public static final String EXTENSION = "bpig";
+
+    private static final int MAGIC = 0x47495042;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 24;
+    private static final int ENTRY_SIZE = 24;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final int NAME_OFFSETS = 1;
+    private static final int NAME_BYTES = 2;
+    private static final int LABEL_OFFSETS = 3;
+    private static final int LABEL_BYTES = 4;
+    private static final int OUT_OFFSETS = 5;
+    private static final int OUT_TARGETS = 6;
+    private static final int OUT_WEIGHTS = 7;
+    private static final int IN_OFFSETS = 8;
+    private static final int IN_SOURCES = 9;
+    private static final int IN_WEIGHTS = 10;
+    private static final int QUOTAS = 11;
+    private static final int SCORE_NAME = 12;
+    private static final int SCORES = 13;
+
+    private final int vertexCount;
+    private final int edgeCount;
+    private final IntBuffer nameOffsets;
+    private final ByteBuffer nameBytes;
+    private final IntBuffer labelOffsets;
+    private final ByteBuffer labelBytes;
+    private final IntBuffer outOffsets;
+    private final IntBuffer outTargets;
+    private final DoubleBuffer outWeights;
+    private final IntBuffer inOffsets;
+    private final IntBuffer inSources;
+    private final DoubleBuffer inWeights;
+    private final DoubleBuffer quotas;
+    private final Map<String, DoubleBuffer> scores;
+
+    private GraphSnapshot(int vertexCount, int edgeCount, ByteBuffer[] sections, List<String> scoreNames,
+                          ByteBuffer[] scoreSections) throws IOException {
+        this.vertexCount = vertexCount;
+        this.edgeCount = edgeCount;
+        this.nameOffsets = ints(required(sections, NAME_OFFSETS), vertexCount + 1);
+        this.nameBytes = required(sections, NAME_BYTES);
+        this.labelOffsets = sections[LABEL_OFFSETS] == null ? null : ints(sections[LABEL_OFFSETS], vertexCount + 1);
+        this.labelBytes = sections[LABEL_BYTES];
+        this.outOffsets = ints(required(sections, OUT_OFFSETS), vertexCount + 1);
+        this.outTargets = ints(required(sections, OUT_TARGETS), edgeCount);
+        this.outWeights = doubles(required(sections, OUT_WEIGHTS), edgeCount);
+        this.inOffsets = ints(required(sections, IN_OFFSETS), vertexCount + 1);
+        this.inSources = ints(required(sections, IN_SOURCES), edgeCount);
+        this.inWeights = doubles(required(sections, IN_WEIGHTS), edgeCount);
+        this.quotas = sections[QUOTAS] == null ? null : doubles(sections[QUOTAS], vertexCount);
+        Map<String, DoubleBuffer> scores = new LinkedHashMap<>();
+        for (int i = 0; i < scoreNames.size(); i++) {
+            if (scoreSections[i] == null) {
+                throw new IOException("Missing scores " + scoreNames.get(i));
+            }
+            scores.put(scoreNames.get(i), doubles(scoreSections[i], vertexCount));
+        }
+        this.scores = Collections.unmodifiableMap(scores);
+    }
+
+    /**
+     * Maps a snapshot file. The mapping stays valid after the method returns.
+     *
+     * @param file the snapshot file
+     * @return the snapshot
+     * @throws IOException if the file cannot be mapped or is not a snapshot
+     */
+    public static GraphSnapshot map(File file) throws IOException {
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            return map(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Maps a snapshot stored in a region of a file, such as an uncompressed asset opened through
+     * an {@code AssetFileDescriptor}.
+     *
+     * @param channel  the channel of the file
+     * @param position the start of the snapshot in the file
+     * @param size     the size of the snapshot
+     * @return the snapshot
+     * @throws IOException if the region cannot be mapped or is not a snapshot
+     */
+    public static GraphSnapshot map(FileChannel channel, long position, long size) throws IOException {
+        return read((offset, length) -> channel.map(FileChannel.MapMode.READ_ONLY, position + offset, length), size);
+    }
+
+    /**
+     * Reads a snapshot held in a buffer, for instance one loaded from a compressed stream.
+     *
+     * @param buffer the snapshot, from its position to its limit
+     * @return the snapshot
+     * @throws IOException if the buffer does not hold a snapshot
+     */
+    public static GraphSnapshot wrap(ByteBuffer buffer) throws IOException {
+        ByteBuffer content = buffer.slice();
+        return read((offset, length) -> {
+            ByteBuffer region = content.duplicate();
+            region.position((int) offset);
+            region.limit((int) (offset + length));
+            return region.slice();
+        }, content.remaining());
+    }
+
+    private static GraphSnapshot read(Region source, long size) throws IOException {
+        if (size < HEADER_SIZE) {
+            throw new IOException("Not a graph snapshot");
+        }
+        ByteBuffer header = source.get(0, HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("Not a graph snapshot");
+        }
+        if (header.getInt(4) != VERSION) {
+            throw new IOException("Unsupported snapshot version " + header.getInt(4));
+        }
+        int n = header.getInt(8);
+        int m = header.getInt(12);
+        int count = header.getInt(16);
+        if (n < 0 || m < 0 || count < 0 || HEADER_SIZE + (long) count * ENTRY_SIZE > size) {
+            throw new IOException("Corrupt snapshot header");
+        }
+        ByteBuffer table = source.get(HEADER_SIZE, (long) count * ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        ByteBuffer[] sections = new ByteBuffer[SCORES + 1];
+        Map<Integer, String> scoreNames = new LinkedHashMap<>();
+        Map<Integer, ByteBuffer> scoreSections = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            int kind = table.getInt(i * ENTRY_SIZE);
+            int tag = table.getInt(i * ENTRY_SIZE + 4);
+            long offset = table.getLong(i * ENTRY_SIZE + 8);
+            long length = table.getLong(i * ENTRY_SIZE + 16);
+            if (offset < 0 || length < 0 || offset + length > size || length > Integer.MAX_VALUE) {
+                throw new IOException("Corrupt snapshot section " + kind);
+            }
+            ByteBuffer section = source.get(offset, length).order(ByteOrder.LITTLE_ENDIAN);
+            if (kind == SCORE_NAME) {
+                byte[] name = new byte[(int) length];
+                section.get(name);
+                scoreNames.put(tag, new String(name, StandardCharsets.UTF_8));
+            } else if (kind == SCORES) {
+                scoreSections.put(tag, section);
+            } else if (kind > 0 && kind < sections.length) {
+                sections[kind] = section;
+            }
+        }
+        List<String> names = new ArrayList<>(scoreNames.size());
+        ByteBuffer[] scores = new ByteBuffer[scoreNames.size()];
+        for (Map.Entry<Integer, String> entry : scoreNames.entrySet()) {
+            scores[names.size()] = scoreSections.get(entry.getKey());
+            names.add(entry.getValue());
+        }
+        return new GraphSnapshot(n, m, sections, names, scores);
+    }
+
+    /**
+     * Creates a builder writing a compiled graph. Vertex names are the string forms of the
+     * vertices.
+     *
+     * @param graph the graph
+     * @return the builder
+     */
+    public static Builder builder(CompiledGraph<?> graph) {
+        return new Builder(graph);
+    }
+
+    /**
+     * Creates a builder writing a graph read from GML, node labels included.
+     *
+     * @param gml the graph
+     * @return the builder
+     */
+    public static Builder builder(GmlGraph gml) {
+        return new Builder(gml.graph()).labels(gml.labels());
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of edges, parallel edges being merged.
+     *
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the name of a vertex.
+     *
+     * @param id the vertex id
+     * @return the name
+     */
+    public String name(int id) {
+        return string(nameOffsets, nameBytes, id);
+    }
+
+    /**
+     * Returns the label of a vertex. Empty labels are not told apart from missing ones.
+     *
+     * @param id the vertex id
+     * @return the label, null if the vertex has none
+     */
+    public String label(int id) {
+        if (labelOffsets == null) {
+            return null;
+        }
+        String label = string(labelOffsets, labelBytes, id);
+        return label.isEmpty() ? null : label;
+    }
+
+    /**
+     * Returns the row offsets of the adjacency, of length n + 1.
+     *
+     * @param incoming if true incoming rows are returned, otherwise outgoing rows
+     * @return a read-only view of the offsets
+     */
+    public IntBuffer offsets(boolean incoming) {
+        return (incoming ? inOffsets : outOffsets).duplicate();
+    }
+
+    /**
+     * Returns the neighbour ids of all rows.
+     *
+     * @param incoming if true sources of incoming edges are returned, otherwise targets of outgoing
+     *                 edges
+     * @return a read-only view of the neighbours
+     */
+    public IntBuffer neighbours(boolean incoming) {
+        return (incoming ? inSources : outTargets).duplicate();
+    }
+
+    /**
+     * Returns the edge weights of all rows.
+     *
+     * @param incoming if true weights of incoming edges are returned, otherwise of outgoing edges
+     * @return a read-only view of the weights
+     */
+    public DoubleBuffer weights(boolean incoming) {
+        return (incoming ? inWeights : outWeights).duplicate();
+    }
+
+    /**
+     * Copies the weights of the candidate coalition members of a vertex, as
+     * {@link CompiledGraph#coalitionWeights(int, boolean, double[])} does, straight from the
+     * mapped rows.
+     *
+     * @param v        the vertex id
+     * @param incoming if true incoming edges are used, otherwise outgoing edges
+     * @param dst      receives the weights, must hold at least the degree of the vertex
+     * @return the number of copied weights
+     */
+    public int coalitionWeights(int v, boolean incoming, double[] dst) {
+        IntBuffer offsets = incoming ? inOffsets : outOffsets;
+        IntBuffer neighbours = incoming ? inSources : outTargets;
+        DoubleBuffer weights = incoming ? inWeights : outWeights;
+        int n = 0;
+        for (int e = offsets.get(v); e < offsets.get(v + 1); e++) {
+            if (neighbours.get(e) != v) {
+                dst[n++] = weights.get(e);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Returns the quotas by vertex id.
+     *
+     * @return a read-only view of the quotas, null if the snapshot has none
+     */
+    public DoubleBuffer quotas() {
+        return quotas == null ? null : quotas.duplicate();
+    }
+
+    /**
+     * Returns the names of the stored score vectors, in the order they were written.
+     *
+     * @return the names
+     */
+    public List<String> scoreNames() {
+        return new ArrayList<>(scores.keySet());
+    }
+
+    /**
+     * Returns a stored score vector.
+     *
+     * @param name the name of the scores
+     * @return a read-only view of the scores by vertex id, null if absent
+     */
+    public DoubleBuffer scores(String name) {
+        DoubleBuffer values = scores.get(name);
+        return values == null ? null : values.duplicate();
+    }
+
+    /**
+     * Copies the snapshot into a compiled graph whose vertices are the names.
+     *
+     * @return the compiled graph
+     */
+    public CompiledGraph<String> toCompiledGraph() {
+        List<String> vertices = new ArrayList<>(vertexCount);
+        for (int id = 0; id < vertexCount; id++) {
+            vertices.add(name(id));
+        }
+        int[] offsets = new int[vertexCount + 1];
+        int[] targets = new int[edgeCount];
+        double[] weights = new double[edgeCount];
+        outOffsets.duplicate().get(offsets);
+        outTargets.duplicate().get(targets);
+        outWeights.duplicate().get(weights);
+        return CompiledGraph.fromRows(vertices, offsets, targets, weights);
+    }
+
+    /**
+     * Writes the graph as GML in the layout of {@code CustomGmlExporter}, with labels and weights.
+     * Node ids are the names if every name is an integer, otherwise the ids of the snapshot, the
+     * names then standing in for missing labels. Quotes and ampersands in labels are written as
+     * {@code &quot;} and {@code &amp;}. Parallel edges come out merged.
+     *
+     * @param out the destination, flushed but left open
+     * @throws IOException if writing fails
+     */
+    public void writeGml(Writer out) throws IOException {
+        boolean integers = true;
+        for (int id = 0; id < vertexCount && integers; id++) {
+            integers = isInteger(name(id));
+        }
+        out.write("Creator \"JGraphT GML Exporter\"\nVersion 1\ngraph\n[\n\tlabel \"\"\n\tdirected 1\n");
+        for (int id = 0; id < vertexCount; id++) {
+            out.write("\tnode\n\t[\n\t\tid ");
+            out.write(integers ? name(id) : Integer.toString(id));
+            String label = label(id);
+            if (label == null && !integers) {
+                label = name(id);
+            }
+            if (label != null) {
+                out.write("\n\t\tlabel \"");
+                out.write(label.replace("&", "&amp;").replace("\"", "&quot;"));
+                out.write('"');
+            }
+            out.write("\n\t]\n");
+        }
+        for (int u = 0; u < vertexCount; u++) {
+            for (int e = outOffsets.get(u); e < outOffsets.get(u + 1); e++) {
+                int v = outTargets.get(e);
+                out.write("\tedge\n\t[\n\t\tsource ");
+                out.write(integers ? name(u) : Integer.toString(u));
+                out.write("\n\t\ttarget ");
+                out.write(integers ? name(v) : Integer.toString(v));
+                out.write("\n\t\tweight ");
+                out.write(Double.toString(outWeights.get(e)));
+                out.write("\n\t]\n");
+            }
+        }
+        out.write("]\n");
+        out.flush();
+    }
+
+    /* Whether a name reads back unchanged as a GML node id */
+    private static boolean isInteger(String name) {
+        try {
+            return Long.toString(Long.parseLong(name)).equals(name);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    private static String string(IntBuffer offsets, ByteBuffer bytes, int id) {
+        int from = offsets.get(id);
+        byte[] value = new byte[offsets.get(id + 1) - from];
+        for (int i = 0; i < value.length; i++) {
+            value[i] = bytes.get(from + i);
+        }
+        return new String(value, StandardCharsets.UTF_8);
+    }
+
+    private static ByteBuffer required(ByteBuffer[] sections, int kind) throws IOException {
+        if (sections[kind] == null) {
+            throw new IOException("Missing snapshot section " + kind);
+        }
+        return sections[kind];
+    }
+
+    private static IntBuffer ints(ByteBuffer section, int count) throws IOException {
+        if (section.remaining() != (long) count * Integer.BYTES) {
+            throw new IOException("Snapshot section has a wrong size");
+        }
+        return section.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static DoubleBuffer doubles(ByteBuffer section, int count) throws IOException {
+        if (section.remaining() != (long) count * Double.BYTES) {
+            throw new IOException("Snapshot section has a wrong size");
+        }
+        return section.asReadOnlyBuffer().order(ByteOrder.LITTLE_ENDIAN).asDoubleBuffer();
+    }
+
+    /**
+     * Source of snapshot regions.
+     */
+    private interface Region {
+        ByteBuffer get(long offset, long length) throws IOException;
+    }
+
+    /**
+     * Builder writing snapshots.
+     */
+    public static class Builder {
+        private final CompiledGraph<?> graph;
+        private List<String> labels;
+        private double[] quotas;
+        private final Map<String, double[]> scores = new LinkedHashMap<>();
+
+        private Builder(CompiledGraph<?> graph) {
+            this.graph = Objects.requireNonNull(graph, "Graph cannot be null");
+        }
+
+        /**
+         * @param labels the labels by vertex id, null entries for vertices without one
+         * @return this builder
+         */
+        public Builder labels(List<String> labels) {
+            this.labels = checkSize(labels, labels.size());
+            return this;
+        }
+
+        /**
+         * @param quotas the quotas by vertex id
+         * @return this builder
+         */
+        public Builder quotas(double[] quotas) {
+            this.quotas = checkSize(quotas, quotas.length);
+            return this;
+        }
+
+        /**
+         * Adds a score vector.
+         *
+         * @param name   the name of the scores
+         * @param values the scores by vertex id
+         * @return this builder
+         */
+        public Builder scores(String name, double[] values) {
+            scores.put(Objects.requireNonNull(name, "Name cannot be null"), checkSize(values, values.length));
+            return this;
+        }
+
+        /**
+         * Writes the snapshot to a file.
+         *
+         * @param file the destination
+         * @throws IOException if writing fails
+         */
+        public void write(File file) throws IOException {
+            try (OutputStream out = new FileOutputStream(file)) {
+                write(out);
+            }
+        }
+
+        /**
+         * Writes the snapshot.
+         *
+         * @param out the destination, left open
+         * @throws IOException if writing fails
+         */
+        public void write(OutputStream out) throws IOException {
+            int n = graph.vertexCount();
+            int m = graph.edgeCount();
+            List<Section> sections = new ArrayList<>();
+            byte[][] names = new byte[n][];
+            for (int id = 0; id < n; id++) {
+                names[id] = String.valueOf(graph.vertex(id)).getBytes(StandardCharsets.UTF_8);
+            }
+            addStrings(sections, NAME_OFFSETS, NAME_BYTES, names);
+            if (labels != null) {
+                byte[][] encoded = new byte[n][];
+                for (int id = 0; id < n; id++) {
+                    String label = labels.get(id);
+                    encoded[id] = label == null ? new byte[0] : label.getBytes(StandardCharsets.UTF_8);
+                }
+                addStrings(sections, LABEL_OFFSETS, LABEL_BYTES, encoded);
+            }
+            sections.add(new Section(OUT_OFFSETS, 0, graph.offsets(false)));
+            sections.add(new Section(OUT_TARGETS, 0, graph.neighbours(false)));
+            sections.add(new Section(OUT_WEIGHTS, 0, graph.weights(false)));
+            sections.add(new Section(IN_OFFSETS, 0, graph.offsets(true)));
+            sections.add(new Section(IN_SOURCES, 0, graph.neighbours(true)));
+            sections.add(new Section(IN_WEIGHTS, 0, graph.weights(true)));
+            if (quotas != null) {
+                sections.add(new Section(QUOTAS, 0, quotas));
+            }
+            int tag = 0;
+            for (Map.Entry<String, double[]> entry : scores.entrySet()) {
+                sections.add(new Section(SCORE_NAME, tag, entry.getKey().getBytes(StandardCharsets.UTF_8)));
+                sections.add(new Section(SCORES, tag, entry.getValue()));
+                tag++;
+            }
+
+            Output output = new Output(Channels.newChannel(out));
+            output.putInt(MAGIC);
+            output.putInt(VERSION);
+            output.putInt(n);
+            output.putInt(m);
+            output.putInt(sections.size());
+            output.putInt(0);
+            long offset = align(HEADER_SIZE + (long) sections.size() * ENTRY_SIZE);
+            for (Section section : sections) {
+                output.putInt(section.kind);
+                output.putInt(section.tag);
+                output.putLong(offset);
+                output.putLong(section.length());
+                offset = align(offset + section.length());
+            }
+            for (Section section : sections) {
+                output.pad();
+                section.write(output);
+            }
+            output.flush();
+        }
+
+        private <T> T checkSize(T values, int size) {
+            if (size != graph.vertexCount()) {
+                throw new IllegalArgumentException("Expected a value for each of the " + graph.vertexCount() + " vertices");
+            }
+            return values;
+        }
+
+        private static void addStrings(List<Section> sections, int offsetsKind, int bytesKind, byte[][] strings) {
+            int[] offsets = new int[strings.length + 1];
+            for (int i = 0; i < strings.length; i++) {
+                offsets[i + 1] = offsets[i] + strings[i].length;
+            }
+            byte[] bytes = new byte[offsets[strings.length]];
+            for (int i = 0; i < strings.length; i++) {
+                System.arraycopy(strings[i], 0, bytes, offsets[i], strings[i].length);
+            }
+            sections.add(new Section(offsetsKind, 0, offsets));
+            sections.add(new Section(bytesKind, 0, bytes));
+        }
+
+        private static long align(long offset) {
+            return (offset + 7) & ~7L;
+        }
+    }
+
+    /**
+     * A section to write, holding an int, double or byte array.
+     */
+    private static final class Section {
+        final int kind;
+        final int tag;
+        final Object data;
+
+        Section(int kind, int tag, Object data) {
+            this.kind = kind;
+            this.tag = tag;
+            this.data = data;
+        }
+
+        long length() {
+            if (data instanceof int[]) {
+                return (long) ((int[]) data).length * Integer.BYTES;
+            }
+            if (data instanceof double[]) {
+                return (long) ((double[]) data).length * Double.BYTES;
+            }
+            return ((byte[]) data).length;
+        }
+
+        void write(Output output) throws IOException {
+            if (data instanceof int[]) {
+                for (int value : (int[]) data) {
+                    output.putInt(value);
+                }
+            } else if (data instanceof double[]) {
+                for (double value : (double[]) data) {
+                    output.putLong(Double.doubleToRawLongBits(value));
+                }
+            } else {
+                output.putBytes((byte[]) data);
+            }
+        }
+    }
+
+    /**
+     * Little-endian buffered output keeping track of the written size.
+     */
+    private static final class Output {
+        private final WritableByteChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        private long written;
+
+        Output(WritableByteChannel channel) {
+            this.channel = channel;
+        }
+
+        void putByte(byte value) throws IOException {
+            ensure(1);
+            buffer.put(value);
+        }
+
+        void putBytes(byte[] values) throws IOException {
+            for (int i = 0; i < values.length; ) {
+                ensure(1);
+                int count = Math.min(buffer.remaining(), values.length - i);
+                buffer.put(values, i, count);
+                i += count;
+            }
+        }
+
+        void putInt(int value) throws IOException {
+            ensure(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensure(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        /* Pads with zeros up to a multiple of 8 bytes */
+        void pad() throws IOException {
+            while (((written + buffer.position()) & 7) != 0) {
+                putByte((byte) 0);
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                written += channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                flush();
+            }
+        }
+    }
+}
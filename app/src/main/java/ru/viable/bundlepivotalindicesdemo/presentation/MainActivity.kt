@@ -7,11 +7,19 @@ import androidx.appcompat.app.AppCompatActivity
 import ru.viable.bundlepivotalindicesdemo.R
 import ru.viable.bundlepivotalindicesdemo.data.Preprocessing
 import ru.viable.bundlepivotalindicesdemo.databinding.ActivityMainBinding
+import ru.viable.bundlepivotalindicesdemo.lib.CancellationToken
+import java.util.concurrent.CancellationException
+import java.util.concurrent.CompletionException
+import java.util.concurrent.Executors
 
 class MainActivity : AppCompatActivity() {
 
     private lateinit var binding: ActivityMainBinding
 
+    /* Networks are loaded off the main thread, the engine scores them on its own pool */
+    private val worker = Executors.newSingleThreadExecutor()
+    private var token: CancellationToken? = null
+
     override fun onCreate(savedInstanceState: Bundle?) {
         super.onCreate(savedInstanceState)
         binding = ActivityMainBinding.inflate(layoutInflater)
@@ -27,26 +35,71 @@ class MainActivity : AppCompatActivity() {
         binding.gvExample.setOnClickListener { _ ->
 
             val file = when (binding.gvSelector.selectedItemId) {
-                0L -> "Gv_Example.gml"
-                1L -> "Gv_Energy.gml"
-                else -> "Gv_Example.gml"
+                0L -> "Gv_Example.bpig"
+                1L -> "Gv_Energy.bpig"
+                else -> "Gv_Example.bpig"
             }
 
+            // a new calculation supersedes the running one
+            token?.cancel()
+            val current = CancellationToken()
+            token = current
             binding.progress.visibility = View.VISIBLE
-            Preprocessing().calculate(
-                applicationContext,
-                file,
-                object : CalculationCallback {
-                    override fun onReceiveResults(s: String) {
-                        binding.resultText.text = s
-                        binding.progress.visibility = View.INVISIBLE
-                    }
-                },
-            )
+            worker.execute {
+                try {
+                    Preprocessing().calculate(
+                        applicationContext,
+                        file,
+                        object : CalculationCallback {
+                            override fun onReceiveResults(s: String) = onUiThread(current) {
+                                binding.resultText.text = s
+                                binding.progress.visibility = View.INVISIBLE
+                            }
+
+                            override fun onPartialResults(verticesDone: Int, vertexCount: Int, s: String) =
+                                onUiThread(current) {
+                                    binding.resultText.text =
+                                        getString(R.string.scoring_progress, verticesDone, vertexCount) + "\n\n" + s
+                                }
+                        },
+                        current,
+                    ).whenComplete { _, failure -> failure?.let { onFailure(current, it) } }
+                } catch (e: Exception) {
+                    onFailure(current, e)
+                }
+            }
+        }
+    }
+
+    override fun onDestroy() {
+        token?.cancel()
+        worker.shutdown()
+        super.onDestroy()
+    }
+
+    /* Shows a failure, unless the calculation was superseded or the activity destroyed */
+    private fun onFailure(token: CancellationToken, failure: Throwable) {
+        val cause = if (failure is CompletionException) failure.cause ?: failure else failure
+        if (cause is CancellationException) {
+            return
+        }
+        onUiThread(token) {
+            binding.resultText.text = getString(R.string.scoring_failed, cause.message)
+            binding.progress.visibility = View.INVISIBLE
+        }
+    }
+
+    /* Runs the action on the main thread unless the calculation was cancelled meanwhile */
+    private fun onUiThread(token: CancellationToken, action: () -> Unit) = runOnUiThread {
+        if (!token.isCancelled) {
+            action()
         }
     }
 }
 
 interface CalculationCallback {
     fun onReceiveResults(s: String)
+
+    /* Called from worker threads with the rankings among the vertices scored so far */
+    fun onPartialResults(verticesDone: Int, vertexCount: Int, s: String) {}
 }
@@ -8,10 +8,13 @@ import org.jgrapht.io.GmlExporter;
 import org.jgrapht.io.GraphExporter;
 import org.jgrapht.io.IntegerComponentNameProvider;
 
-import java.io.PrintWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.io.Writer;
+import java.math.BigDecimal;
 import java.util.HashSet;
-import java.util.Locale;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 
@@ -30,6 +33,7 @@ public class CustomGmlExporter<V, E> extends GmlExporter<V, E> implements GraphE
     private ComponentNameProvider<V> vertexLabelProvider;
     private ComponentNameProvider<E> edgeLabelProvider;
     private final Set<org.jgrapht.io.GmlExporter.Parameter> parameters;
+    private final Map<String, Map<V, Double>> vertexAttributes = new LinkedHashMap<>();
 
     /**
      * Parameters that affect the behavior of the {@link org.jgrapht.io.GmlExporter} exporter.
@@ -79,84 +83,123 @@ public class CustomGmlExporter<V, E> extends GmlExporter<V, E> implements GraphE
         this.parameters = new HashSet<>();
     }
 
-    private String quoted(final String s) {
-        boolean escapeStringAsJava = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.ESCAPE_STRINGS_AS_JAVA);
-        if (escapeStringAsJava) {
-            return "\"" + StringEscapeUtils.escapeJava(s) + "\"";
-        } else {
-            return "\"" + s + "\"";
+    /**
+     * Adds a numeric node attribute, written with every vertex that has a value, for instance the
+     * BI or PI score so that scored networks can be exported in one pass.
+     *
+     * @param key    the GML key of the attribute, a letter followed by letters and digits
+     * @param values the values by vertex
+     */
+    public void setVertexAttribute(String key, Map<V, Double> values) {
+        if (key.isEmpty() || !Character.isLetter(key.charAt(0))) {
+            throw new IllegalArgumentException("Invalid GML key " + key);
         }
+        for (int i = 1; i < key.length(); i++) {
+            if (!Character.isLetterOrDigit(key.charAt(i))) {
+                throw new IllegalArgumentException("Invalid GML key " + key);
+            }
+        }
+        vertexAttributes.put(key, Objects.requireNonNull(values, "Values cannot be null"));
     }
 
-    private void exportHeader(PrintWriter out) {
-        out.println("Creator" + DELIM + quoted(CREATOR));
-        out.println("Version" + DELIM + VERSION);
+    /**
+     * Removes a node attribute.
+     *
+     * @param key the GML key of the attribute
+     */
+    public void removeVertexAttribute(String key) {
+        vertexAttributes.remove(key);
     }
 
-    private void exportVertices(PrintWriter out, Graph<V, E> g) {
+    private void quoted(Output out, final String s) throws IOException {
+        boolean escapeStringAsJava = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.ESCAPE_STRINGS_AS_JAVA);
+        out.append('"').append(escapeStringAsJava ? StringEscapeUtils.escapeJava(s) : s).append('"');
+    }
+
+    private void exportHeader(Output out) throws IOException {
+        out.append("Creator" + DELIM);
+        quoted(out, CREATOR);
+        out.append('\n').append("Version" + DELIM + VERSION + "\n");
+    }
+
+    private void exportVertices(Output out, Graph<V, E> g) throws IOException {
         boolean exportVertexLabels = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.EXPORT_VERTEX_LABELS);
 
         for (V from : g.vertexSet()) {
-            out.println(TAB1 + "node");
-            out.println(TAB1 + "[");
-            out.println(TAB2 + "id" + DELIM + vertexIDProvider.getName(from));
+            out.append(TAB1 + "node\n" + TAB1 + "[\n" + TAB2 + "id" + DELIM).append(vertexIDProvider.getName(from)).append('\n');
             if (exportVertexLabels) {
                 String label = (vertexLabelProvider == null) ? from.toString() : vertexLabelProvider.getName(from);
-                out.println(TAB2 + "label" + DELIM + quoted(label));
+                out.append(TAB2 + "label" + DELIM);
+                quoted(out, label);
+                out.append('\n');
             }
-            out.println(TAB1 + "]");
+            for (Map.Entry<String, Map<V, Double>> attribute : vertexAttributes.entrySet()) {
+                Double value = attribute.getValue().get(from);
+                if (value != null) {
+                    out.append(TAB2).append(attribute.getKey()).append(DELIM).append(value).append('\n');
+                }
+            }
+            out.append(TAB1 + "]\n");
         }
     }
 
-    private void exportEdges(PrintWriter out, Graph<V, E> g) {
-        boolean exportEdgeWeights = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.EXPORT_EDGE_WEIGHTS);
+    private void exportEdges(Output out, Graph<V, E> g) throws IOException {
+        boolean exportEdgeWeights = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.EXPORT_EDGE_WEIGHTS) && g.getType().isWeighted();
         boolean exportEdgeLabels = parameters.contains(org.jgrapht.io.GmlExporter.Parameter.EXPORT_EDGE_LABELS);
 
         for (E edge : g.edgeSet()) {
-            out.println(TAB1 + "edge");
-            out.println(TAB1 + "[");
-            String id = edgeIDProvider.getName(edge);
-            out.println(TAB2 + "id" + DELIM + id);
-            String s = vertexIDProvider.getName(g.getEdgeSource(edge));
-            out.println(TAB2 + "source" + DELIM + s);
-            String t = vertexIDProvider.getName(g.getEdgeTarget(edge));
-            out.println(TAB2 + "target" + DELIM + t);
+            out.append(TAB1 + "edge\n" + TAB1 + "[\n" + TAB2 + "id" + DELIM).append(edgeIDProvider.getName(edge))
+                    .append("\n" + TAB2 + "source" + DELIM).append(vertexIDProvider.getName(g.getEdgeSource(edge)))
+                    .append("\n" + TAB2 + "target" + DELIM).append(vertexIDProvider.getName(g.getEdgeTarget(edge)))
+                    .append('\n');
             if (exportEdgeLabels) {
                 String label = (edgeLabelProvider == null) ? edge.toString() : edgeLabelProvider.getName(edge);
-                out.println(TAB2 + "label" + DELIM + quoted(label));
+                out.append(TAB2 + "label" + DELIM);
+                quoted(out, label);
+                out.append('\n');
             }
-            if (exportEdgeWeights && g.getType().isWeighted()) {
-                out.println(TAB2 + "weight" + DELIM + String.format(Locale.getDefault(), "%.1f", g.getEdgeWeight(edge)));
+            if (exportEdgeWeights) {
+                out.append(TAB2 + "weight" + DELIM).append(g.getEdgeWeight(edge)).append('\n');
             }
-            out.println(TAB1 + "]");
+            out.append(TAB1 + "]\n");
         }
     }
 
     /**
      * {@inheritDoc}
+     * <p>
+     * The output is buffered internally and flushed into the writer at the end. Weights and
+     * attributes are written with the shortest representation that reads back exactly, without
+     * scientific notation.
+     *
+     * @throws UncheckedIOException if the writer fails
      */
     @Override
     public void exportGraph(Graph<V, E> g, Writer writer) {
-        PrintWriter out = new PrintWriter(writer);
+        Output out = new Output(writer);
 
         for (V from : g.vertexSet()) {
             // assign ids in vertex set iteration order
             vertexIDProvider.getName(from);
         }
 
-        exportHeader(out);
-        out.println("graph");
-        out.println("[");
-        out.println(TAB1 + "label" + DELIM + quoted(""));
-        if (g.getType().isDirected()) {
-            out.println(TAB1 + "directed" + DELIM + "1");
-        } else {
-            out.println(TAB1 + "directed" + DELIM + "0");
+        try {
+            exportHeader(out);
+            out.append("graph\n[\n" + TAB1 + "label" + DELIM);
+            quoted(out, "");
+            out.append('\n');
+            if (g.getType().isDirected()) {
+                out.append(TAB1 + "directed" + DELIM + "1\n");
+            } else {
+                out.append(TAB1 + "directed" + DELIM + "0\n");
+            }
+            exportVertices(out, g);
+            exportEdges(out, g);
+            out.append("]\n");
+            out.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        exportVertices(out, g);
-        exportEdges(out, g);
-        out.println("]");
-        out.flush();
     }
 
     /**
@@ -185,4 +228,58 @@ public class CustomGmlExporter<V, E> extends GmlExporter<V, E> implements GraphE
         }
     }
 
+    /**
+     * Character buffer in front of the writer, so that the many small writes of the exporter
+     * neither lock nor format
+     */
+    private static final class Output {
+        private final Writer writer;
+        private final char[] buffer = new char[1 << 13];
+        private int size;
+
+        Output(Writer writer) {
+            this.writer = writer;
+        }
+
+        Output append(char c) throws IOException {
+            if (size == buffer.length) {
+                drain();
+            }
+            buffer[size++] = c;
+            return this;
+        }
+
+        Output append(String s) throws IOException {
+            int length = s.length();
+            for (int i = 0; i < length; ) {
+                if (size == buffer.length) {
+                    drain();
+                }
+                int count = Math.min(buffer.length - size, length - i);
+                s.getChars(i, i + count, buffer, size);
+                size += count;
+                i += count;
+            }
+            return this;
+        }
+
+        /* Shortest decimal that reads back exactly, integral values keep a trailing .0 */
+        Output append(double value) throws IOException {
+            String text = Double.toString(value);
+            if (text.indexOf('E') >= 0) {
+                text = new BigDecimal(text).toPlainString();
+            }
+            return append(text);
+        }
+
+        void flush() throws IOException {
+            drain();
+            writer.flush();
+        }
+
+        private void drain() throws IOException {
+            writer.write(buffer, 0, size);
+            size = 0;
+        }
+    }
 }
@@ -5,6 +5,7 @@ import org.jgrapht.graph.DefaultWeightedEdge
 import org.jgrapht.graph.builder.GraphTypeBuilder
 import org.jgrapht.io.GmlExporter
 import org.jgrapht.io.IntegerComponentNameProvider
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy
 import ru.viable.bundlepivotalindicesdemo.utils.Constants.Companion.countries
 import java.io.File
 
@@ -19,21 +20,7 @@ class GraphExporter {
             .edgeClass(DefaultWeightedEdge::class.java)
             .buildGraph()
 
-        val ql: MutableMap<String, Double> = HashMap()
-        for (v in graph.vertexSet()) {
-            var sum = 0.0
-            for (u in graph.vertexSet()) {
-                val edge =
-                    graph.getEdge(
-                        u,
-                        v,
-                    )
-                if (edge != null) {
-                    sum += graph.getEdgeWeight(edge)
-                }
-            }
-            ql[v] = sum
-        }
+        val ql = QuotaPolicy.fractionOfInWeight(1.0).compute(graph)
 
         val exporter: GmlExporter<String, DefaultWeightedEdge> =
             CustomGmlExporter<String, DefaultWeightedEdge>(
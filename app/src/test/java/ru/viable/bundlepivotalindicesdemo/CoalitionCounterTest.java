@@ -0,0 +1,81 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionCounter;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEnumerator;
+
+/**
+ * Tests for Coalition Counter
+ */
+public class CoalitionCounterTest {
+
+    @Test
+    public void testCountWinningBySize() {
+        double[] weights = new double[]{1.0, 1.0, 2.0, 5.0};
+        double[] bySize = new double[4];
+        CoalitionCounter counter = new CoalitionCounter(3);
+        counter.countWinningBySize(weights, weights.length, 3.0, bySize);
+
+        // {5}; {5,x} x3, {1,2} x2; every triple
+        assertEquals(0.0, bySize[0], 0.0);
+        assertEquals(1.0, bySize[1], 0.0);
+        assertEquals(5.0, bySize[2], 0.0);
+        assertEquals(4.0, bySize[3], 0.0);
+    }
+
+    @Test
+    public void testCountWinningWithNonPositiveQuota() {
+        double[] weights = new double[]{1.0, 2.0, 3.0};
+        CoalitionCounter counter = new CoalitionCounter(2);
+        assertEquals(7.0, counter.countWinning(weights, weights.length, 0.0), 0.0);
+    }
+
+    @Test
+    public void testCountWinningMatchesEnumeration() {
+        Random random = new Random(17);
+        for (int test = 0; test < 200; test++) {
+            int n = random.nextInt(12);
+            int k = 1 + random.nextInt(5);
+            double[] weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                // integer weights give ties, a few negative ones break monotonicity
+                weights[i] = test % 4 == 0 ? random.nextInt(9) - 2 : random.nextInt(6);
+            }
+            double q = random.nextInt(15);
+            CoalitionCounter counter = new CoalitionCounter(k);
+            CoalitionEnumerator enumerator = new CoalitionEnumerator(k);
+            assertEquals("Counts differ for test " + test,
+                    enumerator.countWinning(weights, n, q), counter.countWinning(weights, n, q), 0.0);
+        }
+    }
+
+    @Test
+    public void testCountPivotal() {
+        double[] weights = new double[]{1.0, 1.0, 2.0};
+        CoalitionCounter counter = new CoalitionCounter(3);
+        assertEquals(9.0, counter.countPivotal(weights, weights.length, 2.0), 0.0);
+    }
+
+    @Test
+    public void testCountPivotalMatchesEnumeration() {
+        Random random = new Random(29);
+        for (int test = 0; test < 200; test++) {
+            int n = random.nextInt(12);
+            int k = 1 + random.nextInt(5);
+            double[] weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                weights[i] = test % 4 == 0 ? random.nextDouble() * 5 : random.nextInt(6);
+            }
+            double q = test % 4 == 0 ? random.nextDouble() * 10 : random.nextInt(15);
+            CoalitionCounter counter = new CoalitionCounter(k);
+            CoalitionEnumerator enumerator = new CoalitionEnumerator(k);
+            assertEquals("Pivotal counts differ for test " + test,
+                    enumerator.countPivotal(weights, n, q), counter.countPivotal(weights, n, q), 0.0);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEnumerator;
+
+/**
+ * Tests for Coalition Enumerator
+ */
+public class CoalitionEnumeratorTest {
+
+    @Test
+    public void testEnumeratesEveryCoalitionOnce() {
+        double[] weights = new double[]{1.0, 2.0, 4.0, 8.0, 16.0};
+        Set<Double> sums = new HashSet<>();
+        CoalitionEnumerator enumerator = new CoalitionEnumerator(3);
+        long count = enumerator.enumerate(weights, weights.length, (w, members, size, sum) -> {
+            double expected = 0;
+            for (int i = 0; i < size; i++) {
+                expected += w[members[i]];
+            }
+            assertEquals(expected, sum, 0.0);
+            sums.add(sum);
+        });
+
+        // 1 + 5 + 10 + 10 coalitions, all with distinct sums of powers of two
+        assertEquals(26, count);
+        assertEquals(26, sums.size());
+    }
+
+    @Test
+    public void testEnumeratesOnlyEmptyCoalitionWithoutMembers() {
+        CoalitionEnumerator enumerator = new CoalitionEnumerator(2);
+        assertEquals(1, enumerator.enumerate(new double[0], 0, (w, members, size, sum) -> {
+        }));
+    }
+
+    @Test
+    public void testCountWinningAndPivotal() {
+        double[] weights = new double[]{1.0, 1.0, 2.0};
+        CoalitionEnumerator enumerator = new CoalitionEnumerator(3);
+        double eps = 0.0001;
+
+        // winning: {2}, {0,1}, {0,2}, {1,2}, {0,1,2}
+        assertEquals(5.0, enumerator.countWinning(weights, weights.length, 2.0), eps);
+        // pivotal: {2} -> 1 * 1, {0,1} -> 2 * 2, {0,2} -> 2 * 1, {1,2} -> 2 * 1, {0,1,2} -> 0
+        assertEquals(9.0, enumerator.countPivotal(weights, weights.length, 2.0), eps);
+    }
+}
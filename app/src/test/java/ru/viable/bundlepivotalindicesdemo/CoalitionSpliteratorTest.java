@@ -0,0 +1,79 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEnumerator;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionSpliterator;
+
+/**
+ * Tests for Coalition Spliterator
+ */
+public class CoalitionSpliteratorTest {
+
+    @Test
+    public void testCoversEveryCoalitionInOrder() {
+        int n = 7;
+        int k = 3;
+        List<String> expected = new ArrayList<>();
+        CoalitionEnumerator enumerator = new CoalitionEnumerator(k);
+        enumerator.enumerate(new double[n], n, (w, members, size, sum) ->
+                expected.add(Arrays.toString(Arrays.copyOf(members, size))));
+        expected.sort(null);
+
+        List<int[]> actual = StreamSupport.stream(new CoalitionSpliterator(n, k), false)
+                .collect(Collectors.toList());
+        assertEquals(CoalitionSpliterator.count(n, k), actual.size());
+        List<String> sorted = new ArrayList<>();
+        for (int i = 0; i < actual.size(); i++) {
+            sorted.add(Arrays.toString(actual.get(i)));
+            // coalitions are ordered by size first
+            if (i > 0) {
+                assertTrue(actual.get(i - 1).length <= actual.get(i).length);
+            }
+        }
+        sorted.sort(null);
+        assertEquals(expected, sorted);
+    }
+
+    @Test
+    public void testSplitsKeepOrderAndBalance() {
+        int n = 10;
+        int k = 4;
+        List<int[]> sequential = new ArrayList<>();
+        new CoalitionSpliterator(n, k).forEachRemaining(sequential::add);
+
+        CoalitionSpliterator suffix = new CoalitionSpliterator(n, k);
+        long total = suffix.estimateSize();
+        Spliterator<int[]> prefix = suffix.trySplit();
+        assertNotNull(prefix);
+        assertEquals(total / 2, prefix.estimateSize());
+        Spliterator<int[]> quarter = suffix.trySplit();
+        assertNotNull(quarter);
+
+        List<int[]> joined = new ArrayList<>();
+        prefix.forEachRemaining(joined::add);
+        quarter.forEachRemaining(joined::add);
+        suffix.forEachRemaining(joined::add);
+        assertEquals(sequential.size(), joined.size());
+        for (int i = 0; i < joined.size(); i++) {
+            assertEquals(Arrays.toString(sequential.get(i)), Arrays.toString(joined.get(i)));
+        }
+    }
+
+    @Test
+    public void testParallelStreamCount() {
+        assertEquals(1 + 40 + 780 + 9880, StreamSupport.stream(new CoalitionSpliterator(40, 3), true).count());
+        assertEquals(1, StreamSupport.stream(new CoalitionSpliterator(0, 3), true).count());
+    }
+}
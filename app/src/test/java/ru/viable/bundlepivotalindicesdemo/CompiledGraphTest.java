@@ -0,0 +1,86 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * Tests for Compiled Graph
+ */
+public class CompiledGraphTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+    }
+
+    @Test
+    public void testParallelEdgesAreSummed() {
+        String[] vertices = new String[]{"A", "B", "C"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 2.0);
+        graph.setEdgeWeight(graph.addEdge("B", "C"), 1.0);
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 3.0);
+        graph.setEdgeWeight(graph.addEdge("C", "C"), 4.0);
+
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        int a = compiled.id("A");
+        int c = compiled.id("C");
+        double eps = 1e-9;
+
+        assertEquals(3, compiled.edgeCount());
+        assertEquals(3, compiled.degree(c, true));
+        assertEquals(1, compiled.degree(a, false));
+        assertEquals(10.0, compiled.inWeight(c), eps);
+        assertEquals(5.0, compiled.outWeight(a), eps);
+
+        // self-loops never take part in coalitions
+        double[] weights = new double[compiled.degree(c, true)];
+        int n = compiled.coalitionWeights(c, true, weights);
+        assertEquals(2, n);
+        double[] sorted = Arrays.copyOf(weights, n);
+        Arrays.sort(sorted);
+        assertArrayEquals(new double[]{1.0, 5.0}, sorted, eps);
+    }
+
+    @Test
+    public void testRowsAreSortedByNeighbour() {
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.addEdge("D", "A");
+        graph.addEdge("B", "A");
+        graph.addEdge("C", "A");
+        graph.addEdge("A", "D");
+        graph.addEdge("A", "B");
+
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        for (boolean incoming : new boolean[]{true, false}) {
+            int[] offsets = compiled.offsets(incoming);
+            int[] neighbours = compiled.neighbours(incoming);
+            for (int v = 0; v < compiled.vertexCount(); v++) {
+                for (int e = offsets[v] + 1; e < offsets[v + 1]; e++) {
+                    assertTrue(neighbours[e - 1] < neighbours[e]);
+                }
+            }
+        }
+        assertEquals(-1, compiled.id("E"));
+    }
+}
@@ -0,0 +1,106 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.io.GmlExporter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+import ru.viable.bundlepivotalindicesdemo.utils.CustomGmlExporter;
+
+/**
+ * Tests for Custom GML Exporter
+ */
+public class CustomGmlExporterTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private CustomGmlExporter<String, DefaultWeightedEdge> exporter;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.setEdgeWeight(graph.addEdge("A", "B"), 0.123456789);
+        graph.setEdgeWeight(graph.addEdge("B", "C"), 1e-8);
+        graph.setEdgeWeight(graph.addEdge("C", "A"), 1e10);
+
+        exporter = new CustomGmlExporter<>();
+        exporter.setParameter(GmlExporter.Parameter.EXPORT_VERTEX_LABELS, true);
+        exporter.setParameter(GmlExporter.Parameter.EXPORT_EDGE_WEIGHTS, true);
+    }
+
+    @Test
+    public void testWeightsKeepPrecision() throws IOException {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("ru", "RU"));
+        String gml;
+        try {
+            gml = export();
+        } finally {
+            Locale.setDefault(locale);
+        }
+
+        assertFalse(gml.matches("(?s).*weight [^\\n]*E.*"));
+        assertTrue(gml.contains("\t\tweight 10000000000\n"));
+        GmlGraph read = GmlReader.read(new ByteArrayInputStream(gml.getBytes(StandardCharsets.UTF_8)));
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        for (int id = 0; id < compiled.vertexCount(); id++) {
+            int readId = read.labels().indexOf(compiled.vertex(id));
+            assertEquals(compiled.inWeight(id), read.inWeights()[readId], 0);
+        }
+    }
+
+    @Test
+    public void testWritesScoreAttributes() {
+        Map<String, Double> bundle = new HashMap<>();
+        bundle.put("A", 0.5);
+        bundle.put("B", 0.25);
+        Map<String, Double> pivotal = new HashMap<>();
+        pivotal.put("A", 1e-4);
+        exporter.setVertexAttribute("bundle", bundle);
+        exporter.setVertexAttribute("pivotal", pivotal);
+
+        String gml = export();
+
+        assertTrue(gml.contains("\t\tid 1\n\t\tlabel \"A\"\n\t\tbundle 0.5\n\t\tpivotal 0.00010\n\t]\n"));
+        assertTrue(gml.contains("\t\tid 2\n\t\tlabel \"B\"\n\t\tbundle 0.25\n\t]\n"));
+        assertTrue(gml.contains("\t\tid 3\n\t\tlabel \"C\"\n\t]\n"));
+
+        exporter.removeVertexAttribute("pivotal");
+        assertFalse(export().contains("pivotal"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsInvalidKey() {
+        exporter.setVertexAttribute("bundle index", new HashMap<>());
+    }
+
+    private String export() {
+        StringWriter writer = new StringWriter();
+        exporter.exportGraph(graph, writer);
+        return writer.toString();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.DynamicIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+
+/**
+ * Tests for Dynamic Index
+ */
+public class DynamicIndexTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private Map<String, Double> ql;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        ql = new HashMap<>();
+        for (int i = 0; i < 8; i++) {
+            graph.addVertex("V" + i);
+            ql.put("V" + i, 3.0);
+        }
+    }
+
+    @Test
+    public void testMutationsMatchRecomputation() {
+        Random random = new Random(5);
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            for (IndexType type : IndexType.values()) {
+                for (boolean incoming : new boolean[]{true, false}) {
+                    setUp();
+                    DynamicIndex<String> index = new DynamicIndex<>(type, CompiledGraph.of(graph), 3, ql, true, incoming, engine);
+                    for (int step = 0; step < 60; step++) {
+                        String u = "V" + random.nextInt(8);
+                        String v = "V" + random.nextInt(8);
+                        double weight = 1 + random.nextInt(4);
+                        switch (random.nextInt(4)) {
+                            case 0:
+                                graph.setEdgeWeight(graph.addEdge(u, v), weight);
+                                index.addEdge(u, v, weight);
+                                break;
+                            case 1:
+                                if (graph.containsEdge(u, v)) {
+                                    graph.removeAllEdges(u, v);
+                                    graph.setEdgeWeight(graph.addEdge(u, v), weight);
+                                    index.updateEdgeWeight(u, v, weight);
+                                }
+                                break;
+                            case 2:
+                                graph.removeAllEdges(u, v);
+                                index.removeEdge(u, v);
+                                break;
+                            default:
+                                ql.put(u, weight);
+                                index.setQuota(u, weight);
+                                break;
+                        }
+                        Map<String, Double> expected = engine.computeScores(type, CompiledGraph.of(graph), ql, 3, true, incoming);
+                        for (String vertex : graph.vertexSet()) {
+                            assertEquals("Score for " + vertex + " at step " + step + " is incorrect",
+                                    expected.get(vertex), index.getVertexScore(vertex), 1e-12);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testUpdatesSelfLoop() {
+        graph.setEdgeWeight(graph.addEdge("V0", "V0"), 2.0);
+        graph.setEdgeWeight(graph.addEdge("V1", "V0"), 4.0);
+        graph.setEdgeWeight(graph.addEdge("V2", "V0"), 1.0);
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            for (IndexType type : IndexType.values()) {
+                DynamicIndex<String> index = new DynamicIndex<>(type, CompiledGraph.of(graph), 3, ql, false, true, engine);
+                Map<String, Double> before = index.getScores();
+
+                index.updateEdgeWeight("V0", "V0", 5.0);
+                graph.setEdgeWeight(graph.getEdge("V0", "V0"), 5.0);
+
+                assertEquals(before, index.getScores());
+                assertEquals(engine.computeScores(type, CompiledGraph.of(graph), ql, 3, false, true), index.getScores());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testRejectsUpdateOfMissingSelfLoop() {
+        graph.setEdgeWeight(graph.addEdge("V1", "V0"), 4.0);
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            DynamicIndex<String> index = new DynamicIndex<>(IndexType.BUNDLE, CompiledGraph.of(graph), 3, ql, false, true, engine);
+            index.updateEdgeWeight("V0", "V0", 5.0);
+        }
+    }
+}
@@ -0,0 +1,123 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.io.GmlExporter;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+import ru.viable.bundlepivotalindicesdemo.utils.CustomGmlExporter;
+
+/**
+ * Tests for GML Reader
+ */
+public class GmlReaderTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.setEdgeWeight(graph.addEdge("A", "B"), 3.0);
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 1.5);
+        graph.setEdgeWeight(graph.addEdge("B", "C"), 2.0);
+        graph.setEdgeWeight(graph.addEdge("D", "C"), 4.0);
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 0.5);
+        graph.setEdgeWeight(graph.addEdge("C", "C"), 1.0);
+    }
+
+    @Test
+    public void testReadsExportedGraph() throws IOException {
+        CustomGmlExporter<String, DefaultWeightedEdge> exporter = new CustomGmlExporter<>();
+        exporter.setParameter(GmlExporter.Parameter.EXPORT_VERTEX_LABELS, true);
+        exporter.setParameter(GmlExporter.Parameter.EXPORT_EDGE_WEIGHTS, true);
+        StringWriter writer = new StringWriter();
+        exporter.exportGraph(graph, writer);
+
+        GmlGraph read = GmlReader.read(stream(writer.toString()));
+        CompiledGraph<String> expected = CompiledGraph.of(graph);
+        CompiledGraph<String> actual = read.graph();
+        double eps = 1e-9;
+
+        assertEquals(expected.vertexCount(), actual.vertexCount());
+        assertEquals(expected.edgeCount(), actual.edgeCount());
+        for (int id = 0; id < actual.vertexCount(); id++) {
+            int expectedId = expected.id(read.label(id));
+            assertEquals(expected.inWeight(expectedId), read.inWeights()[id], eps);
+            assertEquals(expected.outWeight(expectedId), read.outWeights()[id], eps);
+            assertEquals(expected.inWeight(expectedId), actual.inWeight(id), eps);
+            assertEquals(expected.degree(expectedId, true), actual.degree(id, true));
+            assertEquals(expected.degree(expectedId, false), actual.degree(id, false));
+        }
+    }
+
+    @Test
+    public void testSkipsUnknownKeys() throws IOException {
+        String gml = String.join("\n",
+                "# comment",
+                "Creator \"test [ ]\"",
+                "graph [",
+                "  directed 1",
+                "  edge [ source 7 target 3 weight 2,5 ]",
+                "  node [ id 3 label \"Tr\u00eas\" graphics [ x 1.0 y [ 2 ] ] ]",
+                "  node [ id 7 ]",
+                "  edge [ id 1 source 3 target 7 ]",
+                "  edge [ source 7 target 3 weight 1e1 label \"]\" ]",
+                "]");
+        GmlGraph read = GmlReader.read(stream(gml));
+        CompiledGraph<String> compiled = read.graph();
+        int seven = compiled.id("7");
+        int three = compiled.id("3");
+
+        assertEquals(Arrays.asList("7", "3"), compiled.vertices());
+        assertEquals("Tr\u00eas", read.label(three));
+        assertNull(read.label(seven));
+        assertArrayEquals(new double[]{1.0, 12.5}, read.inWeights(), 1e-12);
+        assertEquals(12.5, compiled.weights(false)[compiled.offsets(false)[seven]], 1e-12);
+    }
+
+    @Test
+    public void testParsesDecimals() throws IOException {
+        String gml = "graph [ node [ id 0 ] edge [ source 0 target 0 weight 0.1 ] "
+                + "edge [ source 0 target 0 weight -123.456 ] edge [ source 0 target 0 weight 0.30000000000000004 ] ]";
+        GmlGraph read = GmlReader.read(stream(gml));
+
+        assertEquals(0.1 + -123.456 + 0.30000000000000004, read.inWeights()[0], 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testUndeclaredNode() throws IOException {
+        GmlReader.read(stream("graph [ node [ id 0 ] edge [ source 0 target 1 ] ]"));
+    }
+
+    @Test(expected = IOException.class)
+    public void testUnclosedList() throws IOException {
+        GmlReader.read(stream("graph [ node [ id 0 ] node [ id 1 "));
+    }
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,200 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot;
+
+/**
+ * Tests for Graph Snapshot
+ */
+public class GraphSnapshotTest {
+    private static final String GML = String.join("\n",
+            "graph [",
+            "  directed 1",
+            "  node [ id 10 label \"Albania\" ]",
+            "  node [ id 11 ]",
+            "  node [ id 12 label \"\u00c5land\" ]",
+            "  node [ id 13 label \"Aruba\" ]",
+            "  edge [ source 10 target 11 weight 3 ]",
+            "  edge [ source 10 target 12 weight 1.5 ]",
+            "  edge [ source 11 target 12 weight 2 ]",
+            "  edge [ source 13 target 12 weight 4 ]",
+            "  edge [ source 10 target 12 weight 0.5 ]",
+            "  edge [ source 12 target 12 weight 1 ]",
+            "  edge [ source 12 target 10 weight 7 ]",
+            "]");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private GmlGraph gml;
+    private double[] quotas;
+    private double[] bundle;
+
+    @Before
+    public void setUp() throws IOException {
+        gml = GmlReader.read(new ByteArrayInputStream(GML.getBytes(StandardCharsets.UTF_8)));
+        quotas = new double[gml.graph().vertexCount()];
+        bundle = new double[quotas.length];
+        for (int id = 0; id < quotas.length; id++) {
+            quotas[id] = 0.45 * gml.inWeights()[id];
+            bundle[id] = id + 0.25;
+        }
+    }
+
+    @Test
+    public void testMappedSnapshotMatchesGraph() throws IOException {
+        File file = folder.newFile("graph." + GraphSnapshot.EXTENSION);
+        GraphSnapshot.builder(gml).quotas(quotas).scores("bundle", bundle).write(file);
+
+        GraphSnapshot snapshot = GraphSnapshot.map(file);
+        CompiledGraph<String> graph = gml.graph();
+
+        assertEquals(graph.vertexCount(), snapshot.vertexCount());
+        assertEquals(graph.edgeCount(), snapshot.edgeCount());
+        for (boolean incoming : new boolean[]{true, false}) {
+            assertArrayEquals(graph.offsets(incoming), toArray(snapshot.offsets(incoming)));
+            assertArrayEquals(graph.neighbours(incoming), toArray(snapshot.neighbours(incoming)));
+            assertArrayEquals(graph.weights(incoming), toArray(snapshot.weights(incoming)), 0);
+        }
+        for (int id = 0; id < graph.vertexCount(); id++) {
+            assertEquals(graph.vertex(id), snapshot.name(id));
+            assertEquals(gml.label(id), snapshot.label(id));
+            double[] expected = new double[graph.degree(id, true)];
+            double[] actual = new double[expected.length];
+            int n = graph.coalitionWeights(id, true, expected);
+            assertEquals(n, snapshot.coalitionWeights(id, true, actual));
+            assertArrayEquals(expected, actual, 0);
+        }
+        assertNull(snapshot.label(graph.id("11")));
+        assertEquals("\u00c5land", snapshot.label(graph.id("12")));
+        assertArrayEquals(quotas, toArray(snapshot.quotas()), 0);
+        assertEquals(Collections.singletonList("bundle"), snapshot.scoreNames());
+        assertArrayEquals(bundle, toArray(snapshot.scores("bundle")), 0);
+        assertNull(snapshot.scores("pivotal"));
+
+        CompiledGraph<String> copy = snapshot.toCompiledGraph();
+        assertEquals(graph.vertices(), copy.vertices());
+        assertArrayEquals(graph.neighbours(true), copy.neighbours(true));
+        assertArrayEquals(graph.weights(true), copy.weights(true), 0);
+    }
+
+    @Test
+    public void testGmlRoundTrip() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.builder(gml).write(out);
+        GraphSnapshot snapshot = GraphSnapshot.wrap(ByteBuffer.wrap(out.toByteArray()));
+        assertNull(snapshot.quotas());
+
+        StringWriter writer = new StringWriter();
+        snapshot.writeGml(writer);
+        GmlGraph read = GmlReader.read(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(gml.graph().vertices(), read.graph().vertices());
+        assertEquals(gml.labels(), read.labels());
+        assertArrayEquals(gml.graph().offsets(false), read.graph().offsets(false));
+        assertArrayEquals(gml.graph().neighbours(false), read.graph().neighbours(false));
+        assertArrayEquals(gml.graph().weights(false), read.graph().weights(false), 0);
+    }
+
+    @Test
+    public void testMapsRegionOfFile() throws IOException {
+        // an uncompressed asset sits at some offset within the APK
+        File file = folder.newFile("app.apk");
+        ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+        GraphSnapshot.builder(gml).write(snapshot);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(new byte[13]);
+            snapshot.writeTo(out);
+            out.write(new byte[7]);
+        }
+
+        CompiledGraph<String> copy;
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            copy = GraphSnapshot.map(in.getChannel(), 13, snapshot.size()).toCompiledGraph();
+        }
+        assertEquals(gml.graph().vertices(), copy.vertices());
+        assertArrayEquals(gml.graph().offsets(false), copy.offsets(false));
+        assertArrayEquals(gml.graph().neighbours(false), copy.neighbours(false));
+        assertArrayEquals(gml.graph().weights(false), copy.weights(false), 0);
+    }
+
+    @Test
+    public void testGmlRoundTripOfNamedVertices() throws IOException {
+        Graph<String, DefaultWeightedEdge> named = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        named.addVertex("alpha");
+        named.addVertex("beta");
+        named.addVertex("gamma");
+        named.setEdgeWeight(named.addEdge("alpha", "beta"), 2.5);
+        named.setEdgeWeight(named.addEdge("gamma", "alpha"), 1.0);
+        CompiledGraph<String> graph = CompiledGraph.of(named);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        GraphSnapshot.builder(graph).labels(Arrays.asList("say \"hi\" & bye", null, null)).write(out);
+
+        StringWriter writer = new StringWriter();
+        GraphSnapshot.wrap(ByteBuffer.wrap(out.toByteArray())).writeGml(writer);
+        GmlGraph read = GmlReader.read(new ByteArrayInputStream(writer.toString().getBytes(StandardCharsets.UTF_8)));
+
+        assertEquals(Arrays.asList("0", "1", "2"), read.graph().vertices());
+        assertEquals(Arrays.asList("say \"hi\" & bye", "beta", "gamma"), read.labels());
+        assertArrayEquals(graph.offsets(false), read.graph().offsets(false));
+        assertArrayEquals(graph.neighbours(false), read.graph().neighbours(false));
+        assertArrayEquals(graph.weights(false), read.graph().weights(false), 0);
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherContent() throws IOException {
+        byte[] content = new byte[64];
+        Arrays.fill(content, (byte) 1);
+        GraphSnapshot.wrap(ByteBuffer.wrap(content));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testQuotasMustMatchVertices() {
+        GraphSnapshot.builder(gml.graph()).quotas(new double[1]);
+    }
+
+    private static int[] toArray(IntBuffer buffer) {
+        int[] result = new int[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+
+    private static double[] toArray(DoubleBuffer buffer) {
+        double[] result = new double[buffer.remaining()];
+        buffer.get(result);
+        return result;
+    }
+}
@@ -0,0 +1,351 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CancellationToken;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEvaluator;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexComputationException;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexMetrics;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.MetricsRecorder;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.ProgressListener;
+import ru.viable.bundlepivotalindicesdemo.lib.VertexListener;
+
+/**
+ * Tests for Index Engine
+ */
+public class IndexEngineTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private Map<String, Double> ql;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "A");
+        graph.addEdge("D", "C");
+
+        ql = new HashMap<>();
+        graph.vertexSet().forEach(s -> ql.put(s, 1.0));
+    }
+
+    @Test
+    public void testSharedPoolScoresConcurrently() {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        double[] quota = compiled.toArray(ql);
+        try (IndexEngine engine = IndexEngine.builder().forkJoinPool(pool).build()) {
+            CompletableFuture<double[]> bundle = CompletableFuture.supplyAsync(
+                    () -> engine.computeRaw(IndexType.BUNDLE, compiled, quota, 2, true));
+            CompletableFuture<double[]> pivotal = CompletableFuture.supplyAsync(
+                    () -> engine.computeRaw(IndexType.PIVOTAL, compiled, quota, 2, true));
+
+            BundleIndex<String, DefaultWeightedEdge> bundleIndex = new BundleIndex<>(graph, 2, ql, false);
+            PivotalIndex<String, DefaultWeightedEdge> pivotalIndex = new PivotalIndex<>(graph, 2, ql, false);
+            double[] expectedBundle = new double[compiled.vertexCount()];
+            double[] expectedPivotal = new double[compiled.vertexCount()];
+            for (int id = 0; id < compiled.vertexCount(); id++) {
+                expectedBundle[id] = bundleIndex.getVertexScore(compiled.vertex(id));
+                expectedPivotal[id] = pivotalIndex.getVertexScore(compiled.vertex(id));
+            }
+            assertArrayEquals(expectedBundle, bundle.join(), 1e-9);
+            assertArrayEquals(expectedPivotal, pivotal.join(), 1e-9);
+        }
+        assertFalse("Caller-supplied pool must stay running", pool.isShutdown());
+        pool.shutdown();
+    }
+
+    @Test
+    public void testFacadeOnSharedEngine() {
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            BundleIndex<String, DefaultWeightedEdge> bundleIndex =
+                    new BundleIndex<>(graph, CompiledGraph.of(graph), 2, ql, false, true, engine);
+            assertEquals("BI for C is incorrect", 6.0, bundleIndex.getVertexScore("C"), 1e-4);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCardinality() {
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            CompiledGraph<String> compiled = CompiledGraph.of(graph);
+            engine.computeRaw(IndexType.BUNDLE, compiled, compiled.toArray(ql), 0, true);
+        }
+    }
+
+    @Test
+    public void testHubVertexSplitIntoChunks() {
+        // a star with 400 leaves has more than SPLIT_THRESHOLD coalitions of size 2 at the hub
+        graph.addVertex("H");
+        for (int i = 0; i < 400; i++) {
+            String leaf = "L" + i;
+            graph.addVertex(leaf);
+            graph.setEdgeWeight(graph.addEdge(leaf, "H"), 1 + i % 7);
+            ql.put(leaf, 1.0);
+        }
+        ql.put("H", 9.0);
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        double[] quota = compiled.toArray(ql);
+        for (IndexType type : IndexType.values()) {
+            double[] sequential;
+            try (IndexEngine engine = IndexEngine.builder().numThreads(1).build()) {
+                sequential = engine.computeRaw(type, compiled, quota, 2, true);
+            }
+            try (IndexEngine engine = IndexEngine.builder().numThreads(4).build()) {
+                assertArrayEquals(sequential, engine.computeRaw(type, compiled, quota, 2, true), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void testFusedEvaluationMatchesCounting() {
+        graph.addVertex("H");
+        for (int i = 0; i < 400; i++) {
+            String leaf = "L" + i;
+            graph.addVertex(leaf);
+            graph.setEdgeWeight(graph.addEdge(leaf, "H"), 1 + i % 5);
+            ql.put(leaf, 1.0);
+        }
+        ql.put("H", 6.0);
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        double[] quota = compiled.toArray(ql);
+        // counts every coalition, a custom evaluator
+        CoalitionEvaluator.Factory coalitions = q -> new CoalitionEvaluator() {
+            private double result;
+
+            @Override
+            public void visit(double[] weights, int[] members, int size, double sum) {
+                result++;
+            }
+
+            @Override
+            public double result() {
+                return result;
+            }
+        };
+        try (IndexEngine engine = IndexEngine.builder().numThreads(4).build()) {
+            double[][] raw = engine.evaluate(compiled, quota, 2, true,
+                    Arrays.asList(CoalitionEvaluator.bundle(), CoalitionEvaluator.pivotal(), coalitions));
+            assertArrayEquals(engine.computeRaw(IndexType.BUNDLE, compiled, quota, 2, true), raw[0], 0.0);
+            assertArrayEquals(engine.computeRaw(IndexType.PIVOTAL, compiled, quota, 2, true), raw[1], 0.0);
+            assertEquals(1 + 400 + 400 * 399 / 2, raw[2][compiled.id("H")], 0.0);
+        }
+    }
+
+    @Test
+    public void testProgressIsReported() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        AtomicInteger calls = new AtomicInteger();
+        AtomicLong coalitions = new AtomicLong();
+        ProgressListener listener = (verticesDone, vertexCount, evaluated, remainingNanos) -> {
+            calls.incrementAndGet();
+            assertEquals(compiled.vertexCount(), vertexCount);
+            coalitions.accumulateAndGet(evaluated, Math::max);
+        };
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            engine.computeRaw(IndexType.BUNDLE, compiled, compiled.toArray(ql), 2, true, new CancellationToken(), listener);
+        }
+        assertEquals(compiled.vertexCount(), calls.get());
+        // in-degrees 1, 1, 3 and 0 with coalitions of at most 2 members
+        assertEquals(2 + 2 + 7 + 1, coalitions.get());
+    }
+
+    @Test
+    public void testFirstFailureCancelsRemainingTasks() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        AtomicInteger created = new AtomicInteger();
+        CoalitionEvaluator.Factory failing = q -> {
+            created.incrementAndGet();
+            throw new IllegalStateException("broken evaluator");
+        };
+        try (IndexEngine engine = IndexEngine.builder().numThreads(1).build()) {
+            engine.evaluate(compiled, compiled.toArray(ql), 2, true, Collections.singletonList(failing));
+            fail("Failure must be raised");
+        } catch (IndexComputationException e) {
+            assertEquals(0, e.getVertex());
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        assertEquals(1, created.get());
+    }
+
+    @Test
+    public void testCancellationStopsComputation() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        CancellationToken token = new CancellationToken();
+        AtomicInteger done = new AtomicInteger();
+        ProgressListener listener = (verticesDone, vertexCount, evaluated, remainingNanos) -> {
+            done.incrementAndGet();
+            token.cancel();
+        };
+        try (IndexEngine engine = IndexEngine.builder().numThreads(1).build()) {
+            engine.computeRaw(IndexType.PIVOTAL, compiled, compiled.toArray(ql), 2, true, token, listener);
+            fail("Cancellation must be raised");
+        } catch (CancellationException e) {
+            assertTrue(token.isCancelled());
+        }
+        assertEquals(1, done.get());
+    }
+
+    @Test(expected = CancellationException.class)
+    public void testCancelledTokenRunsNothing() {
+        CancellationToken token = new CancellationToken();
+        token.cancel();
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            new BundleIndex<>(graph, CompiledGraph.of(graph), 2, ql, true, true, engine, token, ProgressListener.NONE);
+        }
+    }
+
+    @Test
+    public void testAsyncScoresStreamVertices() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        double[] quota = compiled.toArray(ql);
+        Map<Integer, Double> streamed = new ConcurrentHashMap<>();
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            CompletableFuture<double[]> bundle = engine.computeRawAsync(IndexType.BUNDLE, compiled, quota, 2, true,
+                    new CancellationToken(), streamed::put);
+            CompletableFuture<Map<String, Double>> pivotal = engine.computeScoresAsync(IndexType.PIVOTAL, compiled, ql, 2, true, true,
+                    new CancellationToken(), VertexListener.NONE);
+
+            double[] raw = bundle.join();
+            assertArrayEquals(engine.computeRaw(IndexType.BUNDLE, compiled, quota, 2, true), raw, 0.0);
+            assertEquals(compiled.vertexCount(), streamed.size());
+            for (int id = 0; id < raw.length; id++) {
+                assertEquals(raw[id], streamed.get(id), 0.0);
+            }
+            assertEquals(engine.computeScores(IndexType.PIVOTAL, compiled, ql, 2, true, true), pivotal.join());
+        }
+    }
+
+    @Test
+    public void testCancellingFutureSkipsPendingTasks() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        List<Runnable> queued = new ArrayList<>();
+        AtomicInteger streamed = new AtomicInteger();
+        IndexEngine engine = IndexEngine.builder().executor(queued::add).build();
+
+        CompletableFuture<double[]> future = engine.computeRawAsync(IndexType.BUNDLE, compiled, compiled.toArray(ql), 2, true,
+                new CancellationToken(), (id, raw) -> streamed.incrementAndGet());
+        assertEquals(compiled.vertexCount(), queued.size());
+        queued.get(0).run();
+        assertTrue(future.cancel(false));
+        queued.forEach(Runnable::run);
+
+        assertEquals(1, streamed.get());
+        assertTrue(future.isCancelled());
+    }
+
+    @Test
+    public void testMetricsRecordTasksAndPhases() {
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        MetricsRecorder recorder = new MetricsRecorder();
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).metrics(recorder).build()) {
+            Map<String, Double> scores = engine.computeScores(IndexType.BUNDLE, compiled, ql, 2, true, true);
+            PivotalIndex<String, DefaultWeightedEdge> index = new PivotalIndex<>(graph, compiled, 2, ql, true, true, engine);
+
+            assertEquals(new BundleIndex<>(graph, 2, ql).getScores(), scores);
+            assertEquals(2 * compiled.vertexCount(), recorder.tasks());
+            assertEquals(2, recorder.phaseCount(IndexMetrics.Phase.SCHEDULE));
+            assertEquals(2, recorder.phaseCount(IndexMetrics.Phase.SCORE));
+            assertEquals(2, recorder.phaseCount(IndexMetrics.Phase.NORMALIZE));
+            assertTrue(recorder.phaseNanos(IndexMetrics.Phase.SCORE) > 0);
+            assertTrue(recorder.runNanos() > 0);
+            int c = compiled.id("C");
+            // C has three in-neighbours, so the empty coalition, 3 of one and 3 of two per computation
+            assertEquals(2, recorder.vertex(c).tasks());
+            assertEquals(14.0, recorder.vertex(c).coalitions(), 0.0);
+            assertEquals(4, recorder.slowest(10).size());
+            assertTrue(index.getVertexScore("C") > 0);
+        }
+    }
+
+    @Test
+    public void testNoMetricsByDefault() {
+        try (IndexEngine engine = IndexEngine.builder().numThreads(1).build()) {
+            assertTrue(engine.metrics() == IndexMetrics.NOOP);
+        }
+    }
+
+    @Test
+    public void testCancellationStopsRunningHub() throws Exception {
+        Graph<Integer, DefaultWeightedEdge> hub = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(Integer.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        // counting or enumerating the coalitions of 5 among 200 members takes several seconds
+        int n = 201;
+        Random random = new Random(1);
+        hub.addVertex(0);
+        for (int v = 1; v < n; v++) {
+            hub.addVertex(v);
+            hub.setEdgeWeight(hub.addEdge(v, 0), 1 + random.nextInt(100));
+        }
+        CompiledGraph<Integer> compiled = CompiledGraph.of(hub);
+        double[] quota = new double[n];
+        Arrays.fill(quota, 1.0);
+        quota[compiled.id(0)] = 5 * 50.5;
+        CompiledGraph<String> small = CompiledGraph.of(graph);
+        try (IndexEngine engine = IndexEngine.builder().numThreads(1).build()) {
+            for (int run = 0; run < 2; run++) {
+                CancellationToken token = new CancellationToken();
+                Future<?> hopeless = run == 0
+                        ? engine.computeRawAsync(IndexType.PIVOTAL, compiled, quota, 5, true, token, VertexListener.NONE)
+                        : CompletableFuture.runAsync(() -> engine.evaluate(compiled, quota, 5, true,
+                        Collections.singletonList(CoalitionEvaluator.bundle()), token, ProgressListener.NONE));
+                Thread.sleep(200);
+                long start = System.nanoTime();
+                token.cancel();
+                try {
+                    hopeless.get(2, TimeUnit.SECONDS);
+                    fail();
+                } catch (CancellationException | ExecutionException expected) {
+                    // cancelled
+                }
+                // the only worker is free again once the hub task notices the cancellation
+                engine.computeRaw(IndexType.BUNDLE, small, small.toArray(ql), 2, true);
+                assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexGrid;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+
+/**
+ * Tests for Index Grid
+ */
+public class IndexGridTest {
+    private CompiledGraph<String> compiled;
+    private Map<String, Double> ql;
+
+    @Before
+    public void setUp() {
+        Graph<String, DefaultWeightedEdge> graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        Random random = new Random(3);
+        ql = new HashMap<>();
+        for (int i = 0; i < 12; i++) {
+            graph.addVertex("V" + i);
+            ql.put("V" + i, 2.0 + random.nextInt(6));
+        }
+        for (int e = 0; e < 60; e++) {
+            graph.setEdgeWeight(graph.addEdge("V" + random.nextInt(12), "V" + random.nextInt(12)), 1 + random.nextInt(4));
+        }
+        compiled = CompiledGraph.of(graph);
+    }
+
+    @Test
+    public void testGridMatchesSeparateRuns() {
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            IndexGrid<String> grid = new IndexGrid<>(compiled, 4, ql, engine);
+            double[] quota = compiled.toArray(ql);
+            for (IndexType type : IndexType.values()) {
+                for (boolean incoming : new boolean[]{true, false}) {
+                    for (int k = 1; k <= 4; k++) {
+                        assertArrayEquals(type + " k=" + k + " incoming=" + incoming,
+                                engine.computeRaw(type, compiled, quota, k, incoming), grid.raw(type, k, incoming), 0.0);
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBucketsBySize() {
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            IndexGrid<String> grid = new IndexGrid<>(compiled, 3, ql, engine);
+            double[] bySize = grid.bySize(IndexType.BUNDLE, true, "V0");
+            assertEquals(4, bySize.length);
+            double total = 0;
+            for (double count : bySize) {
+                total += count;
+            }
+            assertEquals(grid.scores(IndexType.BUNDLE, 3, true, false).get("V0"), total, 0.0);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.LazyIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy;
+
+/**
+ * Tests for Lazy Index
+ */
+public class LazyIndexTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private Map<String, Double> ql;
+    private AtomicInteger tasks;
+    private IndexEngine engine;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "D");
+
+        ql = new HashMap<>();
+        graph.vertexSet().forEach(s -> ql.put(s, 1.0));
+
+        tasks = new AtomicInteger();
+        Executor counting = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+        engine = IndexEngine.builder().executor(counting).build();
+    }
+
+    @Test
+    public void testRawScoresAreComputedOnDemandAndCached() {
+        LazyIndex<String> index = new LazyIndex<>(IndexType.PIVOTAL, CompiledGraph.of(graph), 3, ql, false, true, engine);
+        assertEquals(0, tasks.get());
+
+        assertEquals("PI for C is incorrect", 2.0, index.getVertexScore("C"), 1e-4);
+        assertEquals(1, tasks.get());
+        assertEquals("PI for C is incorrect", 2.0, index.getVertexScore("C"), 1e-4);
+        assertEquals(1, tasks.get());
+
+        index.getRawScores(Arrays.asList("C", "D"));
+        assertEquals(2, tasks.get());
+    }
+
+    @Test
+    public void testNormalizedScoresMatchEagerIndex() {
+        LazyIndex<String> index = new LazyIndex<>(IndexType.PIVOTAL, CompiledGraph.of(graph), 3, ql, true, true, engine);
+        PivotalIndex<String, DefaultWeightedEdge> eager = new PivotalIndex<>(graph, 3, ql, true);
+
+        assertEquals(eager.getVertexScore("D"), index.getVertexScore("D"), 1e-9);
+        assertEquals(4, tasks.get());
+        assertEquals(eager.getScores(), index.getScores());
+        assertEquals(4, tasks.get());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownVertex() {
+        LazyIndex<String> index = new LazyIndex<>(IndexType.BUNDLE, CompiledGraph.of(graph), 2, ql, false, true, engine);
+        index.getVertexScore("E");
+    }
+
+    @Test
+    public void testTopNMatchesFullRanking() {
+        Graph<Integer, DefaultWeightedEdge> random = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(Integer.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        Random rnd = new Random(11);
+        int n = 300;
+        for (int v = 0; v < n; v++) {
+            random.addVertex(v);
+        }
+        for (int e = 0; e < 900; e++) {
+            // a few hubs attract a third of the edges
+            int target = rnd.nextInt(3) == 0 ? rnd.nextInt(8) : rnd.nextInt(n);
+            random.setEdgeWeight(random.addEdge(rnd.nextInt(n), target), 1 + rnd.nextInt(4));
+        }
+        CompiledGraph<Integer> compiled = CompiledGraph.of(random);
+        double[] quota = QuotaPolicy.fractionOfInWeight(0.45).compute(compiled);
+
+        for (IndexType type : IndexType.values()) {
+            double[] exact = engine.computeRaw(type, compiled, quota, 3, true);
+            List<Integer> ranking = new ArrayList<>(compiled.vertices());
+            ranking.sort((a, b) -> exact[compiled.id(a)] != exact[compiled.id(b)]
+                    ? Double.compare(exact[compiled.id(b)], exact[compiled.id(a)])
+                    : Integer.compare(compiled.id(a), compiled.id(b)));
+            for (int top : new int[]{0, 1, 5, 15, n + 1}) {
+                LazyIndex<Integer> index = new LazyIndex<>(type, compiled, 3, compiled.toMap(quota), false, true, engine);
+                tasks.set(0);
+
+                List<Integer> result = index.topN(top);
+
+                assertEquals(ranking.subList(0, Math.min(top, n)), result);
+                for (Integer v : result) {
+                    assertEquals(exact[compiled.id(v)], index.getRawScore(v), 0.0);
+                }
+                if (top > 0 && top <= 15) {
+                    assertTrue("Top " + top + " scored " + tasks.get() + " vertices", tasks.get() < n / 2);
+                }
+            }
+        }
+    }
+}
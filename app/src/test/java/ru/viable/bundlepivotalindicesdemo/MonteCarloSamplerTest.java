@@ -0,0 +1,176 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ru.viable.bundlepivotalindicesdemo.lib.ApproximateScores;
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.MonteCarloSampler;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy;
+
+/**
+ * Tests for Monte Carlo Sampler
+ */
+public class MonteCarloSamplerTest {
+    private Graph<Integer, DefaultWeightedEdge> graph;
+    private CompiledGraph<Integer> compiled;
+    private double[] quota;
+    private IndexEngine engine;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(Integer.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        // two hubs with 60 members each, too many coalitions of 3 to enumerate within the limit
+        int n = 64;
+        for (int v = 0; v < n; v++) {
+            graph.addVertex(v);
+        }
+        for (int v = 2; v < n; v++) {
+            graph.setEdgeWeight(graph.addEdge(v, 0), 1 + v % 7);
+            graph.setEdgeWeight(graph.addEdge(v, 1), 1 + v % 3);
+            graph.setEdgeWeight(graph.addEdge(v - 1, v), 2.0);
+        }
+        compiled = CompiledGraph.of(graph);
+        quota = QuotaPolicy.fractionOfInWeight(0.05).compute(compiled);
+        engine = IndexEngine.builder().numThreads(4).build();
+    }
+
+    @After
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Test
+    public void testEstimatesMatchExactScores() {
+        MonteCarloSampler sampler = MonteCarloSampler.builder().seed(7).confidence(0.99).targetRelativeError(0.01).build();
+        for (IndexType type : IndexType.values()) {
+            double[] exact = engine.computeRaw(type, compiled, quota, 3, true);
+            ApproximateScores approximate = sampler.estimate(engine, type, compiled, quota, 3, true);
+
+            assertTrue(approximate.converged());
+            for (int id = 0; id < exact.length; id++) {
+                assertEquals(exact[id], approximate.estimates()[id], 0.02 * exact[id]);
+                assertTrue(approximate.halfWidths()[id] <= 0.01 * approximate.estimates()[id]);
+            }
+        }
+    }
+
+    @Test
+    public void testSmallVerticesAreExact() {
+        MonteCarloSampler sampler = MonteCarloSampler.builder().targetRelativeError(0.05).build();
+        double[] exact = engine.computeRaw(IndexType.PIVOTAL, compiled, quota, 3, true);
+        ApproximateScores approximate = sampler.estimate(engine, IndexType.PIVOTAL, compiled, quota, 3, true);
+
+        for (int id = 2; id < exact.length; id++) {
+            assertEquals(0, approximate.samples(id));
+            assertEquals(0.0, approximate.halfWidths()[id], 0.0);
+            assertEquals(exact[id], approximate.estimates()[id], 0.0);
+        }
+        assertTrue(approximate.samples(0) > 0);
+        assertTrue(approximate.lower(0) <= approximate.estimates()[0]);
+        assertTrue(approximate.upper(0) > approximate.estimates()[0]);
+    }
+
+    @Test
+    public void testSameSeedGivesSameEstimates() {
+        MonteCarloSampler sampler = MonteCarloSampler.builder().seed(42).targetRelativeError(0.05).build();
+        ApproximateScores first = sampler.estimate(engine, IndexType.BUNDLE, compiled, quota, 3, true);
+        try (IndexEngine single = IndexEngine.builder().numThreads(1).build()) {
+            ApproximateScores second = sampler.estimate(single, IndexType.BUNDLE, compiled, quota, 3, true);
+
+            assertArrayEquals(first.estimates(), second.estimates(), 0.0);
+            assertArrayEquals(first.halfWidths(), second.halfWidths(), 0.0);
+        }
+    }
+
+    @Test
+    public void testTimeBudget() {
+        MonteCarloSampler sampler = MonteCarloSampler.builder().timeBudget(50, TimeUnit.MILLISECONDS).build();
+        long start = System.nanoTime();
+        ApproximateScores approximate = sampler.estimate(engine, IndexType.BUNDLE, compiled, quota, 3, true);
+
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        assertFalse(approximate.converged());
+        assertTrue(approximate.samples(0) > 0);
+        assertTrue(approximate.halfWidths()[0] > 0);
+    }
+
+    @Test
+    public void testIndicesAcceptSampler() {
+        MonteCarloSampler sampler = MonteCarloSampler.builder().targetRelativeError(0.01).build();
+        Map<Integer, Double> ql = compiled.toMap(quota);
+
+        PivotalIndex<Integer, DefaultWeightedEdge> exact = new PivotalIndex<>(graph, compiled, 3, ql, true, true, engine);
+        PivotalIndex<Integer, DefaultWeightedEdge> approximate = new PivotalIndex<>(graph, compiled, 3, ql, true, true, engine, sampler);
+
+        assertNull(exact.getApproximation());
+        ApproximateScores scores = approximate.getApproximation();
+        double total = 0;
+        for (double estimate : scores.estimates()) {
+            total += estimate;
+        }
+        assertEquals(1.0, total, 1e-9);
+        for (Integer v : graph.vertexSet()) {
+            assertEquals(exact.getVertexScore(v), approximate.getVertexScore(v), 0.03 * exact.getVertexScore(v));
+        }
+        assertEquals(new BundleIndex<>(graph, compiled, 3, ql, false, true, engine).getVertexScore(2),
+                new BundleIndex<>(graph, compiled, 3, ql, false, true, engine, sampler).getVertexScore(2));
+    }
+
+    @Test
+    public void testRareWinningCoalitionsKeepInterval() {
+        Graph<Integer, DefaultWeightedEdge> hub = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(Integer.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        // only the three heavy members together reach the quota, one coalition of 3 in millions
+        hub.addVertex(0);
+        for (int v = 1; v <= 300; v++) {
+            hub.addVertex(v);
+            hub.setEdgeWeight(hub.addEdge(v, 0), v <= 3 ? 50.0 : 1.0);
+        }
+        CompiledGraph<Integer> star = CompiledGraph.of(hub);
+        double[] q = new double[star.vertexCount()];
+        q[star.id(0)] = 150;
+        MonteCarloSampler sampler = MonteCarloSampler.builder().seed(3).targetRelativeError(0.05)
+                .timeBudget(200, TimeUnit.MILLISECONDS).build();
+        for (IndexType type : IndexType.values()) {
+            double exact = engine.computeRaw(type, star, q, 3, true)[star.id(0)];
+            ApproximateScores approximate = sampler.estimate(engine, type, star, q, 3, true);
+
+            assertTrue(exact > 0);
+            assertFalse(approximate.converged());
+            assertTrue(approximate.halfWidths()[star.id(0)] > 0);
+            assertTrue(approximate.upper(star.id(0)) >= exact);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testStoppingRuleRequired() {
+        MonteCarloSampler.builder().seed(1).build();
+    }
+}
@@ -0,0 +1,141 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy;
+
+/**
+ * Tests for Quota Policy
+ */
+public class QuotaPolicyTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private CompiledGraph<String> compiled;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 2.0);
+        graph.setEdgeWeight(graph.addEdge("A", "C"), 1.5);
+        graph.setEdgeWeight(graph.addEdge("B", "C"), 3.0);
+        graph.setEdgeWeight(graph.addEdge("C", "D"), 4.0);
+        graph.setEdgeWeight(graph.addEdge("D", "D"), 0.5);
+
+        compiled = CompiledGraph.of(graph);
+    }
+
+    @Test
+    public void testFractionOfInWeight() {
+        Map<String, Double> ql = QuotaPolicy.fractionOfInWeight(0.5).compute(graph);
+
+        assertEquals(0.0, ql.get("A"), 1e-12);
+        assertEquals(0.0, ql.get("B"), 1e-12);
+        assertEquals(3.25, ql.get("C"), 1e-12);
+        assertEquals(2.25, ql.get("D"), 1e-12);
+    }
+
+    @Test
+    public void testFractionOfOutWeight() {
+        Map<String, Double> ql = QuotaPolicy.fractionOfOutWeight(2.0).compute(graph);
+
+        assertEquals(7.0, ql.get("A"), 1e-12);
+        assertEquals(6.0, ql.get("B"), 1e-12);
+        assertEquals(8.0, ql.get("C"), 1e-12);
+        assertEquals(1.0, ql.get("D"), 1e-12);
+    }
+
+    @Test
+    public void testGraphAndCompiledGraphAgree() {
+        QuotaPolicy[] policies = {
+                QuotaPolicy.absolute(1.0),
+                QuotaPolicy.fractionOfInWeight(0.45),
+                QuotaPolicy.fractionOfOutWeight(0.3).withOverrides(Collections.singletonMap("B", 9.0))
+        };
+        for (QuotaPolicy policy : policies) {
+            assertEquals(policy.compute(graph), compiled.toMap(policy.compute(compiled)));
+        }
+    }
+
+    @Test
+    public void testOverrides() {
+        Map<String, Double> overrides = new HashMap<>();
+        overrides.put("A", 1.0);
+        overrides.put("C", 2.0);
+        QuotaPolicy policy = QuotaPolicy.absolute(5.0).withOverrides(overrides);
+
+        double[] quota = policy.compute(compiled);
+
+        assertEquals(1.0, quota[compiled.id("A")], 0.0);
+        assertEquals(5.0, quota[compiled.id("B")], 0.0);
+        assertEquals(2.0, quota[compiled.id("C")], 0.0);
+        assertEquals(5.0, quota[compiled.id("D")], 0.0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownOverride() {
+        QuotaPolicy.absolute(1.0).withOverrides(Collections.singletonMap("E", 1.0)).compute(compiled);
+    }
+
+    @Test
+    public void testIndicesAcceptPolicy() {
+        QuotaPolicy policy = QuotaPolicy.fractionOfInWeight(0.45);
+        Map<String, Double> ql = policy.compute(graph);
+
+        assertEquals(new BundleIndex<>(graph, 2, ql).getScores(), new BundleIndex<>(graph, 2, policy).getScores());
+        assertEquals(new PivotalIndex<>(graph, 2, ql).getScores(), new PivotalIndex<>(graph, 2, policy).getScores());
+    }
+
+    @Test
+    public void testParallelComputation() {
+        Graph<Integer, DefaultWeightedEdge> large = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(Integer.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        int n = 1 << 10;
+        for (int v = 0; v < n; v++) {
+            large.addVertex(v);
+        }
+        for (int e = 0; e < QuotaPolicy.PARALLEL_THRESHOLD; e++) {
+            large.setEdgeWeight(large.addEdge(e % n, (e * 31 + 7) % n), 1 + e % 5);
+        }
+        CompiledGraph<Integer> compiledLarge = CompiledGraph.of(large);
+        QuotaPolicy policy = QuotaPolicy.fractionOfInWeight(0.45);
+
+        double[] quota = policy.compute(compiledLarge);
+        Map<Integer, Double> ql = policy.compute(large);
+
+        double[] expected = new double[n];
+        for (DefaultWeightedEdge edge : large.edgeSet()) {
+            expected[compiledLarge.id(large.getEdgeTarget(edge))] += large.getEdgeWeight(edge);
+        }
+        for (int id = 0; id < n; id++) {
+            expected[id] *= 0.45;
+        }
+        assertArrayEquals(expected, quota, 1e-9);
+        assertArrayEquals(expected, compiledLarge.toArray(ql), 1e-9);
+    }
+}
@@ -0,0 +1,119 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaSweep;
+
+/**
+ * Tests for Quota Sweep
+ */
+public class QuotaSweepTest {
+    private Graph<String, DefaultWeightedEdge> graph;
+    private CompiledGraph<String> compiled;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        Random random = new Random(11);
+        for (int i = 0; i < 10; i++) {
+            graph.addVertex("V" + i);
+        }
+        for (int e = 0; e < 40; e++) {
+            String u = "V" + random.nextInt(10);
+            String v = "V" + random.nextInt(10);
+            graph.setEdgeWeight(graph.addEdge(u, v), 1 + random.nextInt(5));
+        }
+        compiled = CompiledGraph.of(graph);
+    }
+
+    @Test
+    public void testSweepMatchesSeparateRuns() {
+        Map<String, Double> inWeight = new HashMap<>();
+        for (int v = 0; v < compiled.vertexCount(); v++) {
+            inWeight.put(compiled.vertex(v), compiled.inWeight(v));
+        }
+        double[] fractions = new double[]{0.30, 0.35, 0.40, 0.45, 0.50, 0.55, 0.60, 0.65, 0.70};
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            for (IndexType type : IndexType.values()) {
+                QuotaSweep<String> sweep = new QuotaSweep<>(type, compiled, 3, true, engine);
+                List<Map<String, Double>> scores = sweep.scores(inWeight, fractions, true);
+                assertEquals(fractions.length, scores.size());
+                for (int j = 0; j < fractions.length; j++) {
+                    Map<String, Double> ql = new HashMap<>();
+                    double fraction = fractions[j];
+                    inWeight.forEach((v, w) -> ql.put(v, fraction * w));
+                    assertEquals(engine.computeScores(type, compiled, ql, 3, true, true), scores.get(j));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBreakpoints() {
+        Graph<String, DefaultWeightedEdge> star = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        star.addVertex("A");
+        star.addVertex("B");
+        star.addVertex("C");
+        star.setEdgeWeight(star.addEdge("B", "A"), 1.0);
+        star.setEdgeWeight(star.addEdge("C", "A"), 2.0);
+
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            QuotaSweep<String> bundle = new QuotaSweep<>(IndexType.BUNDLE, CompiledGraph.of(star), 2, true, engine);
+            assertArrayEquals(new double[]{0.0, 1.0, 2.0, 3.0}, bundle.breakpoints("A"), 0.0);
+            QuotaSweep<String> pivotal = new QuotaSweep<>(IndexType.PIVOTAL, CompiledGraph.of(star), 2, true, engine);
+            assertArrayEquals(new double[]{0.0, 1.0, 2.0, 3.0}, pivotal.breakpoints("A"), 0.0);
+        }
+    }
+
+    @Test
+    public void testBreakpointsOfLargeHub() {
+        Graph<String, DefaultWeightedEdge> star = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        star.addVertex("A");
+        for (int i = 0; i < 300; i++) {
+            star.addVertex("M" + i);
+            star.setEdgeWeight(star.addEdge("M" + i, "A"), 1 + i % 5);
+        }
+
+        // millions of coalitions, but their sums are the integers 0..15
+        double[] expected = new double[16];
+        for (int i = 0; i < expected.length; i++) {
+            expected[i] = i;
+        }
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            for (IndexType type : IndexType.values()) {
+                QuotaSweep<String> sweep = new QuotaSweep<>(type, CompiledGraph.of(star), 3, true, engine);
+                assertArrayEquals(expected, sweep.breakpoints("A"), 0.0);
+            }
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.ScoreCache;
+
+/**
+ * Tests for Score Cache
+ */
+public class ScoreCacheTest {
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Graph<String, DefaultWeightedEdge> graph;
+    private CompiledGraph<String> compiled;
+    private double[] quota;
+    private AtomicInteger tasks;
+    private IndexEngine engine;
+
+    @Before
+    public void setUp() {
+        graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        String[] vertices = new String[]{"A", "B", "C", "D"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.addEdge("A", "B");
+        graph.addEdge("A", "C");
+        graph.addEdge("B", "C");
+        graph.addEdge("C", "A");
+        graph.addEdge("D", "C");
+
+        compiled = CompiledGraph.of(graph);
+        quota = new double[compiled.vertexCount()];
+        Arrays.fill(quota, 1.0);
+
+        tasks = new AtomicInteger();
+        Executor counting = command -> {
+            tasks.incrementAndGet();
+            command.run();
+        };
+        engine = IndexEngine.builder().executor(counting).build();
+    }
+
+    @Test
+    public void testHitSkipsComputation() throws IOException {
+        File dir = folder.newFolder();
+        double[] first = new ScoreCache(dir, 1 << 20).getScores(engine, IndexType.BUNDLE, compiled, quota, 2, true, true);
+        int computed = tasks.get();
+        assertTrue(computed > 0);
+
+        // a new instance over the same directory sees the stored entry
+        double[] second = new ScoreCache(dir, 1 << 20).getScores(engine, IndexType.BUNDLE, compiled, quota, 2, true, true);
+        assertEquals(computed, tasks.get());
+        assertArrayEquals(first, second, 0);
+
+        BundleIndex<String, DefaultWeightedEdge> index = new BundleIndex<>(graph, compiled, 2, compiled.toMap(quota), true, true, engine);
+        for (int id = 0; id < compiled.vertexCount(); id++) {
+            assertEquals(index.getVertexScore(compiled.vertex(id)), second[id], 1e-12);
+        }
+    }
+
+    @Test
+    public void testKeyCoversParameters() {
+        String key = ScoreCache.key(IndexType.BUNDLE, compiled, quota, 2, true, true);
+        double[] otherQuota = quota.clone();
+        otherQuota[0] = 2.0;
+        graph.setEdgeWeight(graph.getEdge("D", "C"), 2.0);
+
+        assertNotEquals(key, ScoreCache.key(IndexType.PIVOTAL, compiled, quota, 2, true, true));
+        assertNotEquals(key, ScoreCache.key(IndexType.BUNDLE, compiled, otherQuota, 2, true, true));
+        assertNotEquals(key, ScoreCache.key(IndexType.BUNDLE, compiled, quota, 3, true, true));
+        assertNotEquals(key, ScoreCache.key(IndexType.BUNDLE, compiled, quota, 2, false, true));
+        assertNotEquals(key, ScoreCache.key(IndexType.BUNDLE, compiled, quota, 2, true, false));
+        assertNotEquals(key, ScoreCache.key(IndexType.BUNDLE, CompiledGraph.of(graph), quota, 2, true, true));
+        assertEquals(key, ScoreCache.key(IndexType.BUNDLE, compiled, quota.clone(), 2, true, true));
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() throws IOException {
+        // every entry takes 8 header bytes and 8 bytes per vertex
+        ScoreCache cache = new ScoreCache(folder.newFolder(), 3 * 40);
+        cache.put("a", new double[4]);
+        cache.put("b", new double[4]);
+        cache.put("c", new double[4]);
+        assertEquals(120, cache.size());
+
+        assertTrue(cache.get("a") != null);
+        cache.put("d", new double[4]);
+
+        assertTrue(cache.contains("a"));
+        assertFalse(cache.contains("b"));
+        assertNull(cache.get("b"));
+        assertEquals(120, cache.size());
+
+        cache.put("huge", new double[100]);
+        assertFalse(cache.contains("huge"));
+    }
+
+    @Test
+    public void testSeedCopiesEntry() throws IOException {
+        File source = folder.newFolder();
+        ScoreCache build = new ScoreCache(source, 1 << 20);
+        double[] scores = build.getScores(engine, IndexType.PIVOTAL, compiled, quota, 2, true, false);
+        String key = ScoreCache.key(IndexType.PIVOTAL, compiled, quota, 2, true, false);
+
+        ScoreCache device = new ScoreCache(folder.newFolder(), 1 << 20);
+        try (InputStream in = new FileInputStream(new File(source, key + ScoreCache.EXTENSION))) {
+            device.seed(key, in);
+        }
+        int computed = tasks.get();
+
+        assertArrayEquals(scores, device.getScores(engine, IndexType.PIVOTAL, compiled, quota, 2, true, false), 0);
+        assertEquals(computed, tasks.get());
+    }
+
+    @Test
+    public void testTruncatedEntryIsRecomputed() throws IOException {
+        File dir = folder.newFolder();
+        ScoreCache cache = new ScoreCache(dir, 1 << 20);
+        double[] scores = cache.getScores(engine, IndexType.BUNDLE, compiled, quota, 2, true, true);
+        String key = ScoreCache.key(IndexType.BUNDLE, compiled, quota, 2, true, true);
+        File entry = new File(dir, key + ScoreCache.EXTENSION);
+        try (RandomAccessFile file = new RandomAccessFile(entry, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        ScoreCache reopened = new ScoreCache(dir, 1 << 20);
+        assertNull(reopened.get(key));
+        assertFalse(reopened.contains(key));
+        assertFalse(entry.exists());
+        assertEquals(0, reopened.size());
+
+        int computed = tasks.get();
+        assertArrayEquals(scores, reopened.getScores(engine, IndexType.BUNDLE, compiled, quota, 2, true, true), 0);
+        assertTrue(tasks.get() > computed);
+        assertTrue(reopened.contains(key));
+    }
+}
@@ -16,6 +16,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import ru.viable.bundlepivotalindicesdemo.lib.SubsetsGenerator;
 
@@ -84,5 +85,43 @@ public class SubsetGeneratorTest {
         answer.add(pairedSet);
         assertEquals(answer, result);
     }
-}
 
+    @Test
+    public void testNeighbourGeneratorMatchesFullGenerator() {
+        String[] vertices = new String[]{"A", "B", "C", "D", "E"};
+        Arrays.stream(vertices).forEach(v -> graph.addVertex(v));
+
+        graph.addEdge("A", "D");
+        graph.addEdge("B", "D");
+        graph.addEdge("B", "D");
+        graph.addEdge("C", "D");
+        graph.addEdge("D", "D");
+        graph.addEdge("D", "E");
+
+        Set<String> inputSet = new HashSet<>(graph.vertexSet());
+        String excludedVertex = "D";
+        inputSet.remove(excludedVertex);
+        SubsetsGenerator<String, DefaultWeightedEdge> generator = new SubsetsGenerator<>();
+        for (boolean incoming : new boolean[]{true, false}) {
+            for (int k = 1; k <= 4; k++) {
+                Set<Set<String>> answer = new HashSet<>();
+                generator.generateSubsets(graph, new ArrayList<>(inputSet), answer, new HashSet<>(), excludedVertex, 0, k, incoming);
+                assertEquals(answer, generator.generateNeighbourSubsets(graph, excludedVertex, k, incoming));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelNeighbourStream() {
+        graph.addVertex("T");
+        for (int i = 0; i < 12; i++) {
+            graph.addVertex("N" + i);
+            graph.addEdge("N" + i, "T");
+        }
+
+        SubsetsGenerator<String, DefaultWeightedEdge> generator = new SubsetsGenerator<>();
+        Set<Set<String>> streamed = generator.neighbourSubsets(graph, "T", 3, true, true)
+                .collect(Collectors.toSet());
+        assertEquals(generator.generateNeighbourSubsets(graph, "T", 3, true), streamed);
+    }
+}
@@ -0,0 +1,25 @@
+@Suppress("DSL_SCOPE_VIOLATION") // TODO: Remove once KTIJ-19369 is fixed
+plugins {
+    java
+    alias(libs.plugins.jmh)
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+dependencies {
+    implementation(project(":cli"))
+}
+
+jmh {
+    jmhVersion.set(libs.versions.jmh)
+    warmupIterations.set(3)
+    iterations.set(5)
+    fork.set(1)
+    profilers.add("gc")
+    jvmArgsAppend.add("-Dbenchmark.assets=${rootProject.file("app/src/main/assets").absolutePath}")
+    // makes the vector evaluation kernel of the cli available, the build already runs on JDK 17
+    jvmArgsAppend.add("--add-modules=jdk.incubator.vector")
+}
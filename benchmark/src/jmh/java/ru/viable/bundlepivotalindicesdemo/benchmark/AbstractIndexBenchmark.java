@@ -0,0 +1,73 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+
+/**
+ * Benchmarks of the index computations, parameterized over k and the number of threads. Subclasses
+ * choose the graph.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public abstract class AbstractIndexBenchmark {
+
+    @Param({"1", "2", "3"})
+    public int k;
+
+    @Param({"1", "4", "8"})
+    public int threads;
+
+    protected Graph<String, DefaultWeightedEdge> graph;
+    protected CompiledGraph<String> compiled;
+    protected Map<String, Double> ql;
+    protected IndexEngine engine;
+
+    /* Loads the graph of the benchmark */
+    protected abstract Graph<String, DefaultWeightedEdge> loadGraph() throws Exception;
+
+    @Setup
+    public void setUp() throws Exception {
+        graph = loadGraph();
+        compiled = CompiledGraph.of(graph);
+        ql = GraphFixtures.quota(graph, 0.45);
+        engine = IndexEngine.builder().numThreads(threads).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        engine.close();
+    }
+
+    @Benchmark
+    public Map<String, Double> bundleIndex() {
+        return new BundleIndex<>(graph, compiled, k, ql, true, true, engine).getScores();
+    }
+
+    @Benchmark
+    public Map<String, Double> pivotalIndex() {
+        return new PivotalIndex<>(graph, compiled, k, ql, true, true, engine).getScores();
+    }
+
+    @Benchmark
+    public CompiledGraph<String> compile() {
+        return CompiledGraph.of(graph);
+    }
+}
@@ -0,0 +1,19 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Index benchmarks on the networks bundled with the demo.
+ */
+public class AssetIndexBenchmark extends AbstractIndexBenchmark {
+
+    @Param({"Gv_Example.gml", "Gv_Energy.gml"})
+    public String file;
+
+    @Override
+    protected Graph<String, DefaultWeightedEdge> loadGraph() throws Exception {
+        return GraphFixtures.load(file, 0);
+    }
+}
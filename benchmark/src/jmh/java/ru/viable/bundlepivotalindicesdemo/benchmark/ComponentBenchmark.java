@@ -0,0 +1,107 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.Normalizer;
+import ru.viable.bundlepivotalindicesdemo.lib.SubsetsGenerator;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot;
+
+/**
+ * Benchmarks of the building blocks: subset generation, normalization and GML import through
+ * JGraphT, through the streaming reader and from a snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ComponentBenchmark {
+
+    @Param({"Gv_Example.gml", "Gv_Energy.gml", GraphFixtures.SYNTHETIC})
+    public String file;
+
+    @Param({"1", "2"})
+    public int k;
+
+    private byte[] content;
+    private Graph<String, DefaultWeightedEdge> graph;
+    private String hub;
+    private Map<String, Double> scores;
+    private File snapshot;
+
+    @Setup
+    public void setUp() throws Exception {
+        content = GraphFixtures.SYNTHETIC.equals(file) ? null : GraphFixtures.readAsset(file);
+        graph = GraphFixtures.load(file, 1.0);
+        hub = graph.vertexSet().iterator().next();
+        for (String v : graph.vertexSet()) {
+            if (graph.inDegreeOf(v) > graph.inDegreeOf(hub)) {
+                hub = v;
+            }
+        }
+        snapshot = File.createTempFile("benchmark", "." + GraphSnapshot.EXTENSION);
+        snapshot.deleteOnExit();
+        GraphSnapshot.builder(CompiledGraph.of(graph)).write(snapshot);
+        scores = new HashMap<>();
+        int i = 0;
+        for (String v : graph.vertexSet()) {
+            scores.put(v, (double) i++);
+        }
+    }
+
+    @Benchmark
+    public Set<Set<String>> generateSubsets() {
+        Set<String> inputSet = new HashSet<>(graph.vertexSet());
+        inputSet.remove(hub);
+        List<String> inputList = new ArrayList<>(inputSet);
+        Set<Set<String>> result = new HashSet<>();
+        new SubsetsGenerator<String, DefaultWeightedEdge>()
+                .generateSubsets(graph, inputList, result, new HashSet<>(), hub, 0, k, true);
+        return result;
+    }
+
+    @Benchmark
+    public Set<Set<String>> generateNeighbourSubsets() {
+        return new SubsetsGenerator<String, DefaultWeightedEdge>().generateNeighbourSubsets(graph, hub, k, true);
+    }
+
+    @Benchmark
+    public Map<String, Double> normalizeScores() {
+        return new Normalizer<String, DefaultWeightedEdge>().normalizeScores(graph, scores);
+    }
+
+    @Benchmark
+    public Graph<String, DefaultWeightedEdge> gmlImport() throws Exception {
+        return content == null ? graph : GraphFixtures.importGml(content);
+    }
+
+    @Benchmark
+    public GmlGraph gmlRead() throws Exception {
+        return content == null ? null : GmlReader.read(new ByteArrayInputStream(content));
+    }
+
+    @Benchmark
+    public CompiledGraph<String> snapshotLoad() throws Exception {
+        return GraphSnapshot.map(snapshot).toCompiledGraph();
+    }
+}
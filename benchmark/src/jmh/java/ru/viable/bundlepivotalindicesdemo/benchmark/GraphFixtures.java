@@ -0,0 +1,106 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.io.EdgeProvider;
+import org.jgrapht.io.GmlImporter;
+import org.jgrapht.io.ImportException;
+import org.jgrapht.io.VertexProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Graphs and quotas shared by the benchmarks.
+ */
+final class GraphFixtures {
+
+    /**
+     * Name of the synthetic graph parameter value
+     */
+    static final String SYNTHETIC = "synthetic";
+
+    private GraphFixtures() {
+    }
+
+    /* Creates an empty graph of the type the demo imports into */
+    static Graph<String, DefaultWeightedEdge> newGraph() {
+        return GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+    }
+
+    /* Reads a bundled asset, the directory is passed by the build as a system property */
+    static byte[] readAsset(String file) throws IOException {
+        Path assets = Paths.get(System.getProperty("benchmark.assets", "app/src/main/assets"));
+        return Files.readAllBytes(assets.resolve(file));
+    }
+
+    /* Imports a GML file the same way the demo does */
+    static Graph<String, DefaultWeightedEdge> importGml(byte[] content) throws ImportException {
+        VertexProvider<String> vertexProvider = (label, attributes) -> label;
+        EdgeProvider<String, DefaultWeightedEdge> edgeProvider = (from, to, label, attributes) -> new DefaultWeightedEdge();
+        GmlImporter<String, DefaultWeightedEdge> importer = new GmlImporter<>(vertexProvider, edgeProvider);
+        Graph<String, DefaultWeightedEdge> graph = newGraph();
+        importer.importGraph(graph, new ByteArrayInputStream(content));
+        return graph;
+    }
+
+    /* Loads a bundled asset or builds the synthetic graph */
+    static Graph<String, DefaultWeightedEdge> load(String name, double skew) throws IOException, ImportException {
+        if (SYNTHETIC.equals(name)) {
+            return synthetic(500, 10, skew, 42);
+        }
+        return importGml(readAsset(name));
+    }
+
+    /**
+     * Builds a random graph with n vertices and n * edgesPerVertex edges. Sources are uniform and
+     * targets follow a Zipf law with the given exponent, so 0 gives uniform in-degrees and larger
+     * values concentrate the edges on a few hubs.
+     */
+    static Graph<String, DefaultWeightedEdge> synthetic(int n, int edgesPerVertex, double skew, long seed) {
+        Random random = new Random(seed);
+        Graph<String, DefaultWeightedEdge> graph = newGraph();
+        double[] cumulative = new double[n];
+        double total = 0;
+        for (int i = 0; i < n; i++) {
+            graph.addVertex(String.valueOf(i));
+            total += Math.pow(i + 1, -skew);
+            cumulative[i] = total;
+        }
+        for (int e = 0; e < n * edgesPerVertex; e++) {
+            int source = random.nextInt(n);
+            int target = java.util.Arrays.binarySearch(cumulative, random.nextDouble() * total);
+            target = target < 0 ? Math.min(-target - 1, n - 1) : target;
+            if (source != target) {
+                DefaultWeightedEdge edge = graph.addEdge(String.valueOf(source), String.valueOf(target));
+                graph.setEdgeWeight(edge, 1 + random.nextInt(100));
+            }
+        }
+        return graph;
+    }
+
+    /* Quota of every vertex as a fraction of its in-weight */
+    static Map<String, Double> quota(Graph<String, DefaultWeightedEdge> graph, double fraction) {
+        Map<String, Double> ql = new HashMap<>();
+        for (String v : graph.vertexSet()) {
+            double sum = 0;
+            for (DefaultWeightedEdge edge : graph.incomingEdgesOf(v)) {
+                sum += graph.getEdgeWeight(edge);
+            }
+            ql.put(v, fraction * sum);
+        }
+        return ql;
+    }
+}
@@ -0,0 +1,90 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.viable.bundlepivotalindicesdemo.cli.EvaluationKernel;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEnumerator;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEvaluator;
+
+/**
+ * Benchmarks of the evaluation kernels of the batch on the coalitions of one vertex, on one
+ * thread. The coalitions counter reports coalitions per second; the quota lets about half of the
+ * largest coalitions win. The vector kernel needs the incubator module, added by the build.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class KernelBenchmark {
+
+    @Param({"SCALAR", "VECTOR"})
+    public EvaluationKernel kernel;
+
+    @Param({"32", "128"})
+    public int members;
+
+    @Param({"2", "3"})
+    public int k;
+
+    private double[] weights;
+    private double q;
+    private CoalitionEnumerator enumerator;
+    private List<CoalitionEvaluator.Factory> evaluators;
+
+    /**
+     * Number of coalitions evaluated, reported as a rate
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Coalitions {
+        public long coalitions;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            coalitions = 0;
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        if (!kernel.isAvailable()) {
+            throw new IllegalStateException(kernel + " kernel is not available in this JVM");
+        }
+        Random random = new Random(42);
+        weights = new double[members];
+        for (int i = 0; i < members; i++) {
+            weights[i] = 1 + random.nextInt(100);
+        }
+        q = k * 50.5;
+        enumerator = new CoalitionEnumerator(k);
+        evaluators = kernel.evaluators();
+    }
+
+    @Benchmark
+    public double bundle(Coalitions counter) {
+        return evaluate(evaluators.get(0), counter);
+    }
+
+    @Benchmark
+    public double pivotal(Coalitions counter) {
+        return evaluate(evaluators.get(1), counter);
+    }
+
+    private double evaluate(CoalitionEvaluator.Factory factory, Coalitions counter) {
+        CoalitionEvaluator evaluator = factory.create(q);
+        counter.coalitions += enumerator.enumerate(weights, members, evaluator);
+        return evaluator.result();
+    }
+}
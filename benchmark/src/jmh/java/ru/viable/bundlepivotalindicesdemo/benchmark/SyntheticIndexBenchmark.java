@@ -0,0 +1,22 @@
+package ru.viable.bundlepivotalindicesdemo.benchmark;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Index benchmarks on synthetic networks of increasing degree skew.
+ */
+public class SyntheticIndexBenchmark extends AbstractIndexBenchmark {
+
+    /**
+     * Zipf exponent of the in-degree distribution, 0 being uniform
+     */
+    @Param({"0.0", "1.0", "1.5"})
+    public double skew;
+
+    @Override
+    protected Graph<String, DefaultWeightedEdge> loadGraph() {
+        return GraphFixtures.synthetic(500, 10, skew, 42);
+    }
+}
@@ -0,0 +1,100 @@
+plugins {
+    `java-library`
+    application
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_11
+    targetCompatibility = JavaVersion.VERSION_11
+}
+
+// The index algorithms are plain Java, so they are compiled from the app sources for the JVM
+sourceSets {
+    main {
+        java {
+            srcDir("../app/src/main/java")
+            include(
+                "ru/viable/bundlepivotalindicesdemo/lib/**",
+                "ru/viable/bundlepivotalindicesdemo/cli/**",
+            )
+        }
+    }
+}
+
+// The Vector API kernel needs JDK 17 and an incubator module, so it is compiled on its own and
+// loaded reflectively, the batch falling back to the scalar kernel on JVMs without them
+val vector by sourceSets.creating {
+    compileClasspath += sourceSets.main.get().output + sourceSets.main.get().compileClasspath
+}
+val vectorJvmArgs = listOf("--add-modules", "jdk.incubator.vector")
+
+tasks.named<JavaCompile>(vector.compileJavaTaskName) {
+    options.release.set(17)
+    options.compilerArgs.addAll(vectorJvmArgs)
+}
+
+tasks.jar {
+    from(vector.output)
+}
+
+tasks.test {
+    classpath += vector.output
+    jvmArgs(vectorJvmArgs)
+}
+
+tasks.named<JavaExec>("run") {
+    classpath += vector.output
+    jvmArgs(vectorJvmArgs)
+}
+
+dependencies {
+    api(libs.jgrapht)
+    testImplementation(libs.junit)
+}
+
+application {
+    mainClass.set("ru.viable.bundlepivotalindicesdemo.cli.BatchMain")
+}
+
+// Converts every bundled GML graph into a snapshot next to it, which the app maps instead of
+// parsing the GML. The snapshots are checked in, rerun this task after changing a bundled graph
+val snapshotAssets by tasks.registering {
+    group = "application"
+    description = "Converts the bundled GML graphs into the app's snapshot assets"
+}
+rootProject.file("app/src/main/assets").listFiles { file -> file.extension == "gml" }?.forEach { gml ->
+    val snapshot = File(gml.parentFile, gml.nameWithoutExtension + ".bpig")
+    val convert = tasks.register<JavaExec>("snapshot" + gml.nameWithoutExtension.replace("_", "")) {
+        inputs.file(gml)
+        outputs.file(snapshot)
+        classpath = sourceSets.main.get().runtimeClasspath
+        mainClass.set("ru.viable.bundlepivotalindicesdemo.cli.SnapshotMain")
+        args(gml.absolutePath, snapshot.absolutePath)
+    }
+    snapshotAssets { dependsOn(convert) }
+}
+
+// Scores the bundled assets with the demo's parameters so the app starts with a warm cache. The
+// entries are checked in under the app's assets, rerun this task after changing a bundled graph
+val prepopulateScoreCache by tasks.registering(JavaExec::class) {
+    group = "application"
+    description = "Scores the bundled graphs into the app's score cache assets"
+    val assets = rootProject.file("app/src/main/assets")
+    val cacheDir = File(assets, "scoreCache")
+    inputs.files(fileTree(assets) { include("*.gml") })
+    outputs.dir(cacheDir)
+    classpath = sourceSets.main.get().runtimeClasspath
+    mainClass.set("ru.viable.bundlepivotalindicesdemo.cli.BatchMain")
+    doFirst {
+        delete(cacheDir)
+    }
+    argumentProviders.add(CommandLineArgumentProvider {
+        listOf(
+            "--cache", cacheDir.absolutePath,
+            // a graph and its snapshot share their cache entries, so they are scored one by one
+            "--in-flight", "1",
+            assets.absolutePath,
+            layout.buildDirectory.dir("tmp/scoreCache").get().asFile.absolutePath,
+        )
+    })
+}
@@ -0,0 +1,178 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.ScoreCache;
+
+/**
+ * Command line entry point scoring every GML file and graph snapshot of a directory.
+ */
+public final class BatchMain {
+
+    /**
+     * Maximum size of the cache in megabytes default value
+     */
+    private static final long CACHE_SIZE_DEFAULT = 256;
+
+    private static final String USAGE = String.join("\n",
+            "Usage: batch [options] <input-dir> <output-dir>",
+            "  --k <n>                 maximum cardinality of critical groups (default " + BatchScorer.K_DEFAULT + ")",
+            "  --quota <fraction>      quota as a fraction of the total weight (default " + BatchScorer.QUOTA_FRACTION_DEFAULT + ")",
+            "  --direction <in|out>    use incoming or outgoing edges (default in)",
+            "  --format <csv|json>     format of the results (default csv)",
+            "  --threads <n>           threads computing the indices (default all processors)",
+            "  --in-flight <n>         graphs held in memory at once (default " + BatchScorer.MAX_IN_FLIGHT_DEFAULT + ")",
+            "  --kernel <scalar|vector>",
+            "                          score both indices in one unpruned enumeration pass with these",
+            "                          evaluators (default pruned counting of every index, vector",
+            "                          needs JDK 17 and --add-modules jdk.incubator.vector)",
+            "  --raw                   write raw scores instead of normalized ones",
+            "  --cache <dir>           reuse and store scores in a cache directory",
+            "  --cache-size <mb>       maximum size of the cache (default " + CACHE_SIZE_DEFAULT + ")");
+
+    private BatchMain() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the batch.
+     *
+     * @param args the command line arguments
+     * @return the exit status, 0 on success, 1 if some files failed and 2 on invalid arguments
+     */
+    static int run(String[] args) {
+        int k = BatchScorer.K_DEFAULT;
+        double quotaFraction = BatchScorer.QUOTA_FRACTION_DEFAULT;
+        boolean incoming = true;
+        OutputFormat format = OutputFormat.CSV;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int maxInFlight = BatchScorer.MAX_IN_FLIGHT_DEFAULT;
+        boolean normalize = true;
+        File cacheDir = null;
+        long cacheSize = CACHE_SIZE_DEFAULT;
+        EvaluationKernel kernel = null;
+        Path input;
+        Path output;
+        try {
+            int i = 0;
+            for (; i < args.length && args[i].startsWith("--"); i++) {
+                String option = args[i];
+                if (option.equals("--raw")) {
+                    normalize = false;
+                    continue;
+                }
+                if (i + 1 >= args.length) {
+                    throw new IllegalArgumentException("Missing value of " + option);
+                }
+                String value = args[++i];
+                switch (option) {
+                    case "--k":
+                        k = Integer.parseInt(value);
+                        break;
+                    case "--quota":
+                        quotaFraction = Double.parseDouble(value);
+                        break;
+                    case "--direction":
+                        incoming = direction(value);
+                        break;
+                    case "--format":
+                        format = OutputFormat.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    case "--threads":
+                        threads = Integer.parseInt(value);
+                        break;
+                    case "--in-flight":
+                        maxInFlight = Integer.parseInt(value);
+                        break;
+                    case "--cache":
+                        cacheDir = new File(value);
+                        break;
+                    case "--cache-size":
+                        cacheSize = Long.parseLong(value);
+                        break;
+                    case "--kernel":
+                        kernel = EvaluationKernel.valueOf(value.toUpperCase(Locale.ROOT));
+                        break;
+                    default:
+                        throw new IllegalArgumentException("Unknown option " + option);
+                }
+            }
+            if (args.length - i != 2) {
+                throw new IllegalArgumentException("Expected an input and an output directory");
+            }
+            input = Paths.get(args[i]);
+            output = Paths.get(args[i + 1]);
+            if (threads <= 0) {
+                throw new IllegalArgumentException("Number of threads must be positive");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        try (IndexEngine engine = IndexEngine.builder().numThreads(threads).metrics(JfrMetrics.INSTANCE).build()) {
+            BatchScorer scorer = BatchScorer.builder(engine)
+                    .k(k)
+                    .quotaFraction(quotaFraction)
+                    .incoming(incoming)
+                    .normalize(normalize)
+                    .maxInFlight(maxInFlight)
+                    .kernel(kernel)
+                    .cache(cacheDir == null ? null : new ScoreCache(cacheDir, cacheSize << 20))
+                    .build();
+            List<Path> files = list(input);
+            Map<Path, Exception> failures = scorer.scoreAll(files, output, format);
+            for (Map.Entry<Path, Exception> failure : failures.entrySet()) {
+                System.err.println(failure.getKey() + ": " + failure.getValue());
+            }
+            System.err.println("Scored " + (files.size() - failures.size()) + " of " + files.size() + " graphs");
+            return failures.isEmpty() ? 0 : 1;
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        } catch (IOException e) {
+            System.err.println(e.getMessage());
+            return 1;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 1;
+        }
+    }
+
+    /* GML files and snapshots of a directory in name order */
+    private static List<Path> list(Path dir) throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(f -> {
+                        String name = f.getFileName().toString().toLowerCase(Locale.ROOT);
+                        return name.endsWith(".gml") || BatchScorer.isSnapshot(f);
+                    })
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    private static boolean direction(String value) {
+        switch (value) {
+            case "in":
+                return true;
+            case "out":
+                return false;
+            default:
+                throw new IllegalArgumentException("Direction must be in or out");
+        }
+    }
+}
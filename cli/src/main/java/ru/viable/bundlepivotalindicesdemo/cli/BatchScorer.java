@@ -0,0 +1,287 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.QuotaPolicy;
+import ru.viable.bundlepivotalindicesdemo.lib.ScoreCache;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot;
+
+/**
+ * Scores many graph files with one {@link IndexEngine}. Each graph is loaded, scored with both
+ * indices, written and released, so at most {@link Builder#maxInFlight(int)} graphs are held in
+ * memory at once. By default every index is counted on its own with the pruned counting of
+ * {@link IndexEngine#computeRaw(IndexType, CompiledGraph, double[], int, boolean)}, which skips the
+ * coalitions that cannot matter; with an {@link EvaluationKernel} both indices are evaluated in one
+ * exhaustive enumeration pass instead. The vertex tasks of all
+ * graphs share the engine's pool, the graphs themselves are driven by separate threads which only
+ * wait for the engine.
+ */
+public class BatchScorer {
+
+    /**
+     * Maximum cardinality of critical groups default value
+     */
+    public static final int K_DEFAULT = 2;
+    /**
+     * Quota as a fraction of the total weight of a vertex default value, as in the demo
+     */
+    public static final double QUOTA_FRACTION_DEFAULT = 0.45;
+    /**
+     * Number of graphs held in memory at once default value
+     */
+    public static final int MAX_IN_FLIGHT_DEFAULT = 2;
+
+    private final IndexEngine engine;
+    private final int k;
+    private final double quotaFraction;
+    private final boolean incoming;
+    private final boolean normalize;
+    private final int maxInFlight;
+    private final ScoreCache cache;
+    private final EvaluationKernel kernel;
+
+    private BatchScorer(Builder builder) {
+        this.engine = builder.engine;
+        this.k = builder.k;
+        this.quotaFraction = builder.quotaFraction;
+        this.incoming = builder.incoming;
+        this.normalize = builder.normalize;
+        this.maxInFlight = builder.maxInFlight;
+        this.cache = builder.cache;
+        this.kernel = builder.kernel;
+    }
+
+    /**
+     * Creates a new builder.
+     *
+     * @param engine the engine computing the indices, owned by the caller
+     * @return the builder
+     */
+    public static Builder builder(IndexEngine engine) {
+        return new Builder(engine);
+    }
+
+    /**
+     * Scores one compiled graph. The quota of a vertex is the configured fraction of the total
+     * weight of its edges in the configured direction. With a cache, scores found there are
+     * returned without computation and computed ones are stored.
+     *
+     * @param name  the name of the graph
+     * @param graph the compiled graph
+     * @return the scores
+     * @throws IOException if the cache cannot be read or written
+     */
+    public GraphScores score(String name, CompiledGraph<String> graph) throws IOException {
+        double[] quota = (incoming ? QuotaPolicy.fractionOfInWeight(quotaFraction)
+                : QuotaPolicy.fractionOfOutWeight(quotaFraction)).compute(graph);
+        String bundleKey = null;
+        String pivotalKey = null;
+        if (cache != null) {
+            bundleKey = ScoreCache.key(IndexType.BUNDLE, graph, quota, k, incoming, normalize);
+            pivotalKey = ScoreCache.key(IndexType.PIVOTAL, graph, quota, k, incoming, normalize);
+            double[] bundle = cache.get(bundleKey);
+            double[] pivotal = cache.get(pivotalKey);
+            if (bundle != null && pivotal != null) {
+                return new GraphScores(name, graph, bundle, pivotal);
+            }
+        }
+        double[][] scores = kernel == null
+                ? new double[][]{engine.computeRaw(IndexType.BUNDLE, graph, quota, k, incoming),
+                engine.computeRaw(IndexType.PIVOTAL, graph, quota, k, incoming)}
+                : engine.evaluate(graph, quota, k, incoming, kernel.evaluators());
+        if (normalize) {
+            scores[0] = engine.normalize(scores[0]);
+            scores[1] = engine.normalize(scores[1]);
+        }
+        if (cache != null) {
+            cache.put(bundleKey, scores[0]);
+            cache.put(pivotalKey, scores[1]);
+        }
+        return new GraphScores(name, graph, scores[0], scores[1]);
+    }
+
+    /**
+     * Scores every file and writes one result file per input into the output directory, named
+     * after the input with the extension of the format. A failing file does not stop the others.
+     *
+     * @param files     the GML files or graph snapshots
+     * @param outputDir the directory receiving the results, created if missing
+     * @param format    the format of the results
+     * @return the failures by file, empty if every file was scored
+     * @throws IOException          if the output directory cannot be created
+     * @throws InterruptedException if interrupted while waiting, pending files are then cancelled
+     */
+    public Map<Path, Exception> scoreAll(List<Path> files, Path outputDir, OutputFormat format)
+            throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+        ExecutorService drivers = Executors.newFixedThreadPool(Math.min(maxInFlight, Math.max(files.size(), 1)));
+        try {
+            List<Future<?>> futures = new ArrayList<>(files.size());
+            for (Path file : files) {
+                futures.add(drivers.submit(() -> {
+                    scoreFile(file, outputDir, format);
+                    return null;
+                }));
+            }
+            Map<Path, Exception> failures = new LinkedHashMap<>();
+            for (int i = 0; i < files.size(); i++) {
+                try {
+                    futures.get(i).get();
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    failures.put(files.get(i), (Exception) cause);
+                }
+            }
+            return failures;
+        } finally {
+            drivers.shutdownNow();
+        }
+    }
+
+    /* Whether a file is a graph snapshot rather than GML, by its extension in any case */
+    static boolean isSnapshot(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith("." + GraphSnapshot.EXTENSION);
+    }
+
+    /* Loads, scores and writes one graph */
+    private void scoreFile(Path file, Path outputDir, OutputFormat format) throws IOException {
+        String name = file.getFileName().toString();
+        CompiledGraph<String> graph = isSnapshot(file)
+                ? GraphSnapshot.map(file.toFile()).toCompiledGraph()
+                : GmlGraphs.compile(file);
+        GraphScores scores = score(name, graph);
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        Path target = outputDir.resolve(base + "." + format.extension());
+        try (Writer out = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+            format.write(scores, out);
+        }
+    }
+
+    /**
+     * Builder of {@link BatchScorer} instances.
+     */
+    public static class Builder {
+        private final IndexEngine engine;
+        private int k = K_DEFAULT;
+        private double quotaFraction = QUOTA_FRACTION_DEFAULT;
+        private boolean incoming = true;
+        private boolean normalize = true;
+        private int maxInFlight = MAX_IN_FLIGHT_DEFAULT;
+        private ScoreCache cache;
+        private EvaluationKernel kernel;
+
+        private Builder(IndexEngine engine) {
+            this.engine = Objects.requireNonNull(engine, "Engine cannot be null");
+        }
+
+        /**
+         * @param k the maximum cardinality of critical sets (groups)
+         * @return this builder
+         */
+        public Builder k(int k) {
+            if (k <= 0) {
+                throw new IllegalArgumentException("Maximum cardinality of critical groups must be positive");
+            }
+            this.k = k;
+            return this;
+        }
+
+        /**
+         * @param quotaFraction the quota of every vertex as a fraction of its total weight
+         * @return this builder
+         */
+        public Builder quotaFraction(double quotaFraction) {
+            if (!(quotaFraction >= 0)) {
+                throw new IllegalArgumentException("Quota fraction must not be negative");
+            }
+            this.quotaFraction = quotaFraction;
+            return this;
+        }
+
+        /**
+         * @param incoming if true incoming paths are used, otherwise outgoing paths
+         * @return this builder
+         */
+        public Builder incoming(boolean incoming) {
+            this.incoming = incoming;
+            return this;
+        }
+
+        /**
+         * @param normalize if true the scores of every graph are normalized to sum to one
+         * @return this builder
+         */
+        public Builder normalize(boolean normalize) {
+            this.normalize = normalize;
+            return this;
+        }
+
+        /**
+         * @param maxInFlight the number of graphs loaded and scored at once
+         * @return this builder
+         */
+        public Builder maxInFlight(int maxInFlight) {
+            if (maxInFlight <= 0) {
+                throw new IllegalArgumentException("Number of graphs in flight must be positive");
+            }
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * @param cache the cache consulted before scoring a graph and updated after, null for none
+         * @return this builder
+         */
+        public Builder cache(ScoreCache cache) {
+            this.cache = cache;
+            return this;
+        }
+
+        /**
+         * Scores both indices in one exhaustive enumeration pass with the evaluators of a kernel,
+         * instead of the pruned counting of every index on its own. The pass visits every
+         * coalition, so it only pays off where pruning skips few of them.
+         *
+         * @param kernel the evaluators of the coalitions, null for the pruned counting (default)
+         * @return this builder
+         * @throws IllegalArgumentException if the kernel is not available in this JVM
+         */
+        public Builder kernel(EvaluationKernel kernel) {
+            if (kernel != null && !kernel.isAvailable()) {
+                throw new IllegalArgumentException(kernel + " kernel is not available in this JVM");
+            }
+            this.kernel = kernel;
+            return this;
+        }
+
+        /**
+         * Creates the scorer.
+         *
+         * @return the scorer
+         */
+        public BatchScorer build() {
+            return new BatchScorer(this);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEvaluator;
+
+/**
+ * Implementations of the Bundle and Pivotal Index evaluators driven by the batch enumeration. Both
+ * give the same scores, bit for bit; they differ in how the coalitions of maximum cardinality, the
+ * bulk of an enumeration, are evaluated.
+ */
+public enum EvaluationKernel {
+    /**
+     * The evaluators of the library, one coalition per loop iteration
+     */
+    SCALAR,
+    /**
+     * Evaluators summing the weights of as many coalitions as a vector has lanes and comparing them
+     * to the quota in one instruction, with the incubating Vector API. They are compiled for JDK 17
+     * from a separate source set and only available when the JVM runs with
+     * {@code --add-modules jdk.incubator.vector} on a CPU with vectors of at least four doubles.
+     */
+    VECTOR;
+
+    /**
+     * Name of the class of the vector evaluators, loaded reflectively so the rest of the batch
+     * runs on JVMs without the Vector API
+     */
+    private static final String VECTOR_EVALUATORS = "ru.viable.bundlepivotalindicesdemo.cli.VectorEvaluators";
+
+    /**
+     * Returns the fastest kernel available in this JVM.
+     *
+     * @return {@link #VECTOR} if available, otherwise {@link #SCALAR}
+     */
+    public static EvaluationKernel best() {
+        return VECTOR.isAvailable() ? VECTOR : SCALAR;
+    }
+
+    /**
+     * Tells whether the kernel can run in this JVM.
+     *
+     * @return true if the kernel is available
+     */
+    public boolean isAvailable() {
+        return this == SCALAR || Vector.EVALUATORS != null;
+    }
+
+    /**
+     * Returns the factories of the Bundle and Pivotal Index evaluators, in this order.
+     *
+     * @return the factories
+     * @throws IllegalStateException if the kernel is not available
+     */
+    public List<CoalitionEvaluator.Factory> evaluators() {
+        if (this == SCALAR) {
+            return Arrays.asList(CoalitionEvaluator.bundle(), CoalitionEvaluator.pivotal());
+        }
+        if (Vector.EVALUATORS == null) {
+            throw new IllegalStateException("Vector kernel needs JDK 17 with --add-modules jdk.incubator.vector");
+        }
+        return Vector.EVALUATORS;
+    }
+
+    /* Loads the vector evaluators on first use, null if the Vector API is missing or too narrow */
+    private static final class Vector {
+        static final List<CoalitionEvaluator.Factory> EVALUATORS = load();
+
+        private static List<CoalitionEvaluator.Factory> load() {
+            try {
+                Class<?> type = Class.forName(VECTOR_EVALUATORS);
+                if (!(Boolean) type.getDeclaredMethod("supported").invoke(null)) {
+                    return null;
+                }
+                return Collections.unmodifiableList(Arrays.asList(
+                        (CoalitionEvaluator.Factory) type.getDeclaredMethod("bundle").invoke(null),
+                        (CoalitionEvaluator.Factory) type.getDeclaredMethod("pivotal").invoke(null)));
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // class missing, compiled for a newer JDK or jdk.incubator.vector not resolved
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.jgrapht.io.EdgeProvider;
+import org.jgrapht.io.GmlImporter;
+import org.jgrapht.io.ImportException;
+import org.jgrapht.io.VertexProvider;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+
+/**
+ * Loads GML files, either into a JGraphT graph or directly into a compiled graph.
+ */
+public final class GmlGraphs {
+
+    private GmlGraphs() {
+    }
+
+    /**
+     * Imports a GML file into a directed weighted graph whose vertices are the node ids.
+     *
+     * @param file the GML file
+     * @return the graph
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static Graph<String, DefaultWeightedEdge> load(Path file) throws IOException {
+        VertexProvider<String> vertexProvider = (label, attributes) -> label;
+        EdgeProvider<String, DefaultWeightedEdge> edgeProvider = (from, to, label, attributes) -> new DefaultWeightedEdge();
+        GmlImporter<String, DefaultWeightedEdge> importer = new GmlImporter<>(vertexProvider, edgeProvider);
+        Graph<String, DefaultWeightedEdge> graph = GraphTypeBuilder
+                .<String, DefaultWeightedEdge>directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        try (InputStream in = Files.newInputStream(file)) {
+            importer.importGraph(graph, in);
+        } catch (ImportException e) {
+            throw new IOException("Cannot parse " + file + ": " + e.getMessage(), e);
+        }
+        return graph;
+    }
+
+    /**
+     * Reads a GML file straight into a compiled graph with {@link GmlReader}.
+     *
+     * @param file the GML file
+     * @return the compiled graph
+     * @throws IOException if the file cannot be read or parsed
+     */
+    public static CompiledGraph<String> compile(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return GmlReader.read(in).graph();
+        }
+    }
+}
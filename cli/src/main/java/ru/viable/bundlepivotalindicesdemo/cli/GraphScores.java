@@ -0,0 +1,42 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * Bundle and pivotal scores of every vertex of one graph.
+ */
+public final class GraphScores {
+    private final String name;
+    private final CompiledGraph<String> graph;
+    private final double[] bundle;
+    private final double[] pivotal;
+
+    /**
+     * @param name    the name of the graph, usually its file name
+     * @param graph   the compiled graph
+     * @param bundle  the bundle scores by vertex id
+     * @param pivotal the pivotal scores by vertex id
+     */
+    public GraphScores(String name, CompiledGraph<String> graph, double[] bundle, double[] pivotal) {
+        this.name = name;
+        this.graph = graph;
+        this.bundle = bundle;
+        this.pivotal = pivotal;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public CompiledGraph<String> getGraph() {
+        return graph;
+    }
+
+    public double[] getBundle() {
+        return bundle;
+    }
+
+    public double[] getPivotal() {
+        return pivotal;
+    }
+}
@@ -0,0 +1,97 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+import ru.viable.bundlepivotalindicesdemo.lib.IndexMetrics;
+
+/**
+ * {@link IndexMetrics} emitting Java Flight Recorder events, one per vertex task and one per phase,
+ * so a computation can be inspected in JDK Mission Control next to the GC and thread events. Tasks
+ * are not wrapped while no recording enables the task event.
+ */
+public final class JfrMetrics implements IndexMetrics {
+
+    /**
+     * The shared instance, JFR metrics keeping no state
+     */
+    public static final JfrMetrics INSTANCE = new JfrMetrics();
+
+    private static final EventType TASK_TYPE = EventType.getEventType(TaskEvent.class);
+
+    private JfrMetrics() {
+    }
+
+    @Override
+    public Runnable instrument(int vertex, double coalitions, Runnable task) {
+        if (!TASK_TYPE.isEnabled()) {
+            return task;
+        }
+        long submitted = System.nanoTime();
+        return () -> {
+            TaskEvent event = new TaskEvent();
+            long started = System.nanoTime();
+            event.begin();
+            try {
+                task.run();
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.vertex = vertex;
+                    event.coalitions = coalitions;
+                    event.queued = started - submitted;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void onPhase(Phase phase, long nanos) {
+        PhaseEvent event = new PhaseEvent();
+        if (event.isEnabled()) {
+            event.phase = phase.name();
+            event.nanos = nanos;
+            event.commit();
+        }
+    }
+
+    @Name("ru.viable.bundlepivotalindicesdemo.VertexTask")
+    @Label("Vertex Task")
+    @Category({"Bundle Pivotal Indices", "Engine"})
+    @Description("Enumeration and evaluation of the coalitions of a vertex, or of a chunk of them")
+    @StackTrace(false)
+    static final class TaskEvent extends Event {
+        @Label("Vertex")
+        int vertex;
+
+        @Label("Coalitions")
+        @Description("Number of candidate coalitions evaluated by the task")
+        double coalitions;
+
+        @Label("Queued")
+        @Description("Time from the submission of the task to its start")
+        @Timespan
+        long queued;
+    }
+
+    @Name("ru.viable.bundlepivotalindicesdemo.Phase")
+    @Label("Computation Phase")
+    @Category({"Bundle Pivotal Indices", "Engine"})
+    @Description("Phase of an index computation, committed when it ends")
+    @StackTrace(false)
+    static final class PhaseEvent extends Event {
+        @Label("Phase")
+        String phase;
+
+        @Label("Duration")
+        @Timespan
+        long nanos;
+    }
+}
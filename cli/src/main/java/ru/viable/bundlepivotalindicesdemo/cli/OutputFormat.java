@@ -0,0 +1,106 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+
+/**
+ * File formats of the batch results, one file per graph.
+ */
+public enum OutputFormat {
+    /**
+     * One row per vertex with the columns vertex, bundle and pivotal
+     */
+    CSV("csv") {
+        @Override
+        public void write(GraphScores scores, Writer out) throws IOException {
+            CompiledGraph<String> graph = scores.getGraph();
+            out.write("vertex,bundle,pivotal\n");
+            for (int id = 0; id < graph.vertexCount(); id++) {
+                out.write(csv(graph.vertex(id)));
+                out.write(',');
+                out.write(Double.toString(scores.getBundle()[id]));
+                out.write(',');
+                out.write(Double.toString(scores.getPivotal()[id]));
+                out.write('\n');
+            }
+        }
+    },
+    /**
+     * An object with the graph name and an array of vertex scores
+     */
+    JSON("json") {
+        @Override
+        public void write(GraphScores scores, Writer out) throws IOException {
+            CompiledGraph<String> graph = scores.getGraph();
+            out.write("{\"graph\":");
+            out.write(json(scores.getName()));
+            out.write(",\"scores\":[");
+            for (int id = 0; id < graph.vertexCount(); id++) {
+                out.write(id == 0 ? "\n" : ",\n");
+                out.write("{\"vertex\":");
+                out.write(json(graph.vertex(id)));
+                out.write(",\"bundle\":");
+                out.write(number(scores.getBundle()[id]));
+                out.write(",\"pivotal\":");
+                out.write(number(scores.getPivotal()[id]));
+                out.write('}');
+            }
+            out.write("\n]}\n");
+        }
+    };
+
+    private final String extension;
+
+    OutputFormat(String extension) {
+        this.extension = extension;
+    }
+
+    /**
+     * Returns the file name extension of the format, without the dot.
+     *
+     * @return the extension
+     */
+    public String extension() {
+        return extension;
+    }
+
+    /**
+     * Writes the scores of one graph.
+     *
+     * @param scores the scores
+     * @param out    the destination, left open
+     * @throws IOException if writing fails
+     */
+    public abstract void write(GraphScores scores, Writer out) throws IOException;
+
+    /* Quotes a CSV field if needed */
+    private static String csv(String value) {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    /* JSON string literal */
+    private static String json(String value) {
+        StringBuilder sb = new StringBuilder(value.length() + 2).append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    /* JSON has no literals for NaN and infinities */
+    private static String number(double value) {
+        return Double.isFinite(value) ? Double.toString(value) : "null";
+    }
+}
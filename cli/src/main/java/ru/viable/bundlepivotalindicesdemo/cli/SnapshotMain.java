@@ -0,0 +1,86 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GmlReader;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot;
+
+/**
+ * Command line converter between GML files and graph snapshots, the direction following the
+ * extension of the input.
+ */
+public final class SnapshotMain {
+
+    private static final String USAGE = String.join("\n",
+            "Usage: snapshot [--quota <fraction>] <input> <output>",
+            "  converts a .gml file into a ." + GraphSnapshot.EXTENSION + " snapshot or back",
+            "  --quota <fraction>      store quotas as a fraction of the in-weight of every vertex");
+
+    private SnapshotMain() {
+    }
+
+    public static void main(String[] args) {
+        System.exit(run(args));
+    }
+
+    /**
+     * Runs the conversion.
+     *
+     * @param args the command line arguments
+     * @return the exit status, 0 on success, 1 on failure and 2 on invalid arguments
+     */
+    static int run(String[] args) {
+        double quotaFraction = Double.NaN;
+        int i = 0;
+        try {
+            if (args.length > 0 && args[0].equals("--quota")) {
+                if (args.length < 2) {
+                    throw new IllegalArgumentException("Missing value of --quota");
+                }
+                quotaFraction = Double.parseDouble(args[1]);
+                i = 2;
+            }
+            if (args.length - i != 2) {
+                throw new IllegalArgumentException("Expected an input and an output file");
+            }
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(USAGE);
+            return 2;
+        }
+        Path input = Paths.get(args[i]);
+        Path output = Paths.get(args[i + 1]);
+        try {
+            if (BatchScorer.isSnapshot(input)) {
+                try (Writer out = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+                    GraphSnapshot.map(input.toFile()).writeGml(out);
+                }
+            } else {
+                GmlGraph gml;
+                try (InputStream in = Files.newInputStream(input)) {
+                    gml = GmlReader.read(in);
+                }
+                GraphSnapshot.Builder builder = GraphSnapshot.builder(gml);
+                if (!Double.isNaN(quotaFraction)) {
+                    double[] quotas = gml.inWeights().clone();
+                    for (int id = 0; id < quotas.length; id++) {
+                        quotas[id] *= quotaFraction;
+                    }
+                    builder.quotas(quotas);
+                }
+                builder.write(output.toFile());
+            }
+            return 0;
+        } catch (IOException e) {
+            System.err.println(input + ": " + e.getMessage());
+            return 1;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import ru.viable.bundlepivotalindicesdemo.cli.BatchScorer;
+import ru.viable.bundlepivotalindicesdemo.cli.GmlGraphs;
+import ru.viable.bundlepivotalindicesdemo.cli.OutputFormat;
+import ru.viable.bundlepivotalindicesdemo.lib.BundleIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexType;
+import ru.viable.bundlepivotalindicesdemo.lib.PivotalIndex;
+import ru.viable.bundlepivotalindicesdemo.lib.ScoreCache;
+import ru.viable.bundlepivotalindicesdemo.lib.io.GraphSnapshot;
+
+/**
+ * Tests for Batch Scorer
+ */
+public class BatchScorerTest {
+    private static final String GML = String.join("\n",
+            "graph [",
+            "  directed 1",
+            "  node [ id 0 ]",
+            "  node [ id 1 ]",
+            "  node [ id 2 ]",
+            "  node [ id 3 ]",
+            "  edge [ source 0 target 1 weight 3 ]",
+            "  edge [ source 0 target 2 weight 1 ]",
+            "  edge [ source 1 target 2 weight 2 ]",
+            "  edge [ source 3 target 2 weight 4 ]",
+            "  edge [ source 2 target 0 weight 5 ]",
+            "]");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path input;
+    private Path output;
+
+    @Before
+    public void setUp() throws IOException {
+        input = folder.newFolder("in").toPath();
+        output = folder.getRoot().toPath().resolve("out");
+        for (int i = 0; i < 5; i++) {
+            Files.write(input.resolve("g" + i + ".gml"), GML.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testScoresMatchIndices() throws Exception {
+        Graph<String, DefaultWeightedEdge> graph = GmlGraphs.load(input.resolve("g0.gml"));
+        Map<String, Double> ql = new HashMap<>();
+        for (String v : graph.vertexSet()) {
+            double sum = 0;
+            for (DefaultWeightedEdge edge : graph.incomingEdgesOf(v)) {
+                sum += graph.getEdgeWeight(edge);
+            }
+            ql.put(v, 0.45 * sum);
+        }
+        BundleIndex<String, DefaultWeightedEdge> bundleIndex = new BundleIndex<>(graph, 2, ql, true);
+        PivotalIndex<String, DefaultWeightedEdge> pivotalIndex = new PivotalIndex<>(graph, 2, ql, true);
+
+        List<Path> files = Arrays.asList(input.resolve("g0.gml"), input.resolve("g1.gml"), input.resolve("g2.gml"),
+                input.resolve("g3.gml"), input.resolve("g4.gml"));
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            BatchScorer scorer = BatchScorer.builder(engine).maxInFlight(2).build();
+            assertTrue(scorer.scoreAll(files, output, OutputFormat.CSV).isEmpty());
+        }
+
+        for (int i = 0; i < 5; i++) {
+            List<String> lines = Files.readAllLines(output.resolve("g" + i + ".csv"));
+            assertEquals("vertex,bundle,pivotal", lines.get(0));
+            assertEquals(5, lines.size());
+            for (String line : lines.subList(1, lines.size())) {
+                String[] row = line.split(",");
+                assertEquals(bundleIndex.getVertexScore(row[0]), Double.parseDouble(row[1]), 1e-9);
+                assertEquals(pivotalIndex.getVertexScore(row[0]), Double.parseDouble(row[2]), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    public void testFailureDoesNotStopBatch() throws Exception {
+        Path broken = input.resolve("broken.gml");
+        Files.write(broken, "graph [ node [".getBytes(StandardCharsets.UTF_8));
+        List<Path> files = Arrays.asList(input.resolve("g0.gml"), broken, input.resolve("g1.gml"));
+        Map<Path, Exception> failures;
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            failures = BatchScorer.builder(engine).maxInFlight(1).build().scoreAll(files, output, OutputFormat.JSON);
+        }
+
+        assertEquals(1, failures.size());
+        assertTrue(failures.containsKey(broken));
+        assertTrue(Files.exists(output.resolve("g0.json")));
+        assertTrue(Files.exists(output.resolve("g1.json")));
+        String json = new String(Files.readAllBytes(output.resolve("g1.json")), StandardCharsets.UTF_8);
+        assertTrue(json.startsWith("{\"graph\":\"g1.gml\",\"scores\":["));
+    }
+
+    @Test
+    public void testScoresSnapshots() throws Exception {
+        // the extension is matched in any case, as when listing the input directory
+        Path snapshot = input.resolve("s0." + GraphSnapshot.EXTENSION.toUpperCase(Locale.ROOT));
+        GraphSnapshot.builder(GmlGraphs.compile(input.resolve("g0.gml"))).write(snapshot.toFile());
+        List<Path> files = Arrays.asList(input.resolve("g0.gml"), snapshot);
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            assertTrue(BatchScorer.builder(engine).build().scoreAll(files, output, OutputFormat.CSV).isEmpty());
+        }
+
+        assertEquals(Files.readAllLines(output.resolve("g0.csv")), Files.readAllLines(output.resolve("s0.csv")));
+    }
+
+    @Test
+    public void testCachedGraphsAreNotRescored() throws Exception {
+        ScoreCache cache = new ScoreCache(folder.newFolder("cache"), 1 << 20);
+        List<Path> files = Arrays.asList(input.resolve("g0.gml"), input.resolve("g1.gml"));
+        AtomicInteger tasks = new AtomicInteger();
+        IndexEngine engine = IndexEngine.builder().executor(command -> {
+            tasks.incrementAndGet();
+            command.run();
+        }).build();
+        BatchScorer scorer = BatchScorer.builder(engine).cache(cache).build();
+
+        assertTrue(scorer.scoreAll(files, output, OutputFormat.CSV).isEmpty());
+        int computed = tasks.get();
+        List<String> first = Files.readAllLines(output.resolve("g1.csv"));
+        assertTrue(scorer.scoreAll(files, output, OutputFormat.CSV).isEmpty());
+
+        assertEquals(computed, tasks.get());
+        assertEquals(first, Files.readAllLines(output.resolve("g1.csv")));
+        // the demo looks entries up with the same key
+        CompiledGraph<String> graph = GmlGraphs.compile(input.resolve("g0.gml"));
+        double[] quota = new double[graph.vertexCount()];
+        for (int id = 0; id < quota.length; id++) {
+            quota[id] = 0.45 * graph.inWeight(id);
+        }
+        assertTrue(cache.contains(ScoreCache.key(IndexType.PIVOTAL, graph, quota, 2, true, true)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidInFlight() {
+        try (IndexEngine engine = IndexEngine.builder().build()) {
+            BatchScorer.builder(engine).maxInFlight(0);
+        }
+    }
+}
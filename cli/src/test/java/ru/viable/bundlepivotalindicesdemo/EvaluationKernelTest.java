@@ -0,0 +1,102 @@
+package ru.viable.bundlepivotalindicesdemo;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.jgrapht.Graph;
+import org.jgrapht.graph.DefaultWeightedEdge;
+import org.jgrapht.graph.builder.GraphTypeBuilder;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import ru.viable.bundlepivotalindicesdemo.cli.BatchScorer;
+import ru.viable.bundlepivotalindicesdemo.cli.EvaluationKernel;
+import ru.viable.bundlepivotalindicesdemo.cli.GraphScores;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEnumerator;
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEvaluator;
+import ru.viable.bundlepivotalindicesdemo.lib.CompiledGraph;
+import ru.viable.bundlepivotalindicesdemo.lib.IndexEngine;
+
+/**
+ * Tests for Evaluation Kernel
+ */
+public class EvaluationKernelTest {
+
+    @Test
+    public void testKernelsMatchOneCoalitionAtATime() {
+        Random random = new Random(3);
+        for (int round = 0; round < 200; round++) {
+            int n = random.nextInt(40);
+            int k = 1 + random.nextInt(4);
+            double[] weights = new double[n];
+            for (int i = 0; i < n; i++) {
+                // few distinct values for ties, some negative
+                weights[i] = random.nextInt(7) - 1 + (random.nextBoolean() ? 0.1 : 0.0);
+            }
+            double q = random.nextInt(4 * k) * 0.7;
+            CoalitionEnumerator enumerator = new CoalitionEnumerator(k);
+            double[] expected = {
+                    oneAtATime(enumerator, weights, n, CoalitionEvaluator.bundle().create(q)),
+                    oneAtATime(enumerator, weights, n, CoalitionEvaluator.pivotal().create(q))
+            };
+            for (EvaluationKernel kernel : EvaluationKernel.values()) {
+                if (!kernel.isAvailable()) {
+                    continue;
+                }
+                List<CoalitionEvaluator.Factory> evaluators = kernel.evaluators();
+                for (int e = 0; e < evaluators.size(); e++) {
+                    CoalitionEvaluator evaluator = evaluators.get(e).create(q);
+                    enumerator.enumerate(weights, n, evaluator);
+                    assertEquals(kernel + " n=" + n + " k=" + k, expected[e], evaluator.result(), 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testBestKernelIsAvailable() {
+        assertTrue(EvaluationKernel.SCALAR.isAvailable());
+        assertTrue(EvaluationKernel.best().isAvailable());
+        assertEquals(2, EvaluationKernel.best().evaluators().size());
+    }
+
+    @Test
+    public void testBatchScoresDoNotDependOnKernel() throws Exception {
+        Graph<String, DefaultWeightedEdge> graph = GraphTypeBuilder.directed()
+                .allowingMultipleEdges(true).allowingSelfLoops(true)
+                .weighted(true)
+                .vertexClass(String.class)
+                .edgeClass(DefaultWeightedEdge.class)
+                .buildGraph();
+        Random random = new Random(5);
+        for (int v = 0; v < 30; v++) {
+            graph.addVertex(String.valueOf(v));
+        }
+        for (int e = 0; e < 300; e++) {
+            String source = String.valueOf(random.nextInt(30));
+            String target = String.valueOf(random.nextInt(5));
+            graph.setEdgeWeight(graph.addEdge(source, target), 1 + random.nextInt(20));
+        }
+        CompiledGraph<String> compiled = CompiledGraph.of(graph);
+        try (IndexEngine engine = IndexEngine.builder().numThreads(2).build()) {
+            GraphScores scalar = BatchScorer.builder(engine).k(3).kernel(EvaluationKernel.SCALAR).build().score("g", compiled);
+            GraphScores best = BatchScorer.builder(engine).k(3).kernel(EvaluationKernel.best()).build().score("g", compiled);
+            GraphScores pruned = BatchScorer.builder(engine).k(3).build().score("g", compiled);
+
+            assertArrayEquals(scalar.getBundle(), best.getBundle(), 0.0);
+            assertArrayEquals(scalar.getPivotal(), best.getPivotal(), 0.0);
+            assertArrayEquals(scalar.getBundle(), pruned.getBundle(), 1e-12);
+            assertArrayEquals(scalar.getPivotal(), pruned.getPivotal(), 1e-12);
+            assertTrue(best.getPivotal()[compiled.id("0")] > 0);
+        }
+    }
+
+    /* Evaluates the coalitions through visit only, bypassing the batched last members */
+    private static double oneAtATime(CoalitionEnumerator enumerator, double[] weights, int n, CoalitionEvaluator evaluator) {
+        enumerator.enumerate(weights, n, evaluator::visit);
+        return evaluator.result();
+    }
+}
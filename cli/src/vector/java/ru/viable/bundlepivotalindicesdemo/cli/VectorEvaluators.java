@@ -0,0 +1,104 @@
+package ru.viable.bundlepivotalindicesdemo.cli;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import ru.viable.bundlepivotalindicesdemo.lib.CoalitionEvaluator;
+
+/**
+ * Bundle and Pivotal Index evaluators over the Vector API, loaded by {@link EvaluationKernel}. The
+ * coalitions of maximum cardinality sharing all members but the last are evaluated a vector of last
+ * members at a time: their weights are the shared sum plus a contiguous slice of the weight array.
+ * Sums and comparisons are the ones of the scalar evaluators, so the scores are identical. The
+ * remainder of a run and the smaller coalitions go through the scalar code.
+ */
+final class VectorEvaluators {
+
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    private VectorEvaluators() {
+    }
+
+    /* Whether vectors are wide enough to beat the scalar loop, AVX2 holds four doubles */
+    static boolean supported() {
+        return SPECIES.length() >= 4;
+    }
+
+    static CoalitionEvaluator.Factory bundle() {
+        return Bundle::new;
+    }
+
+    static CoalitionEvaluator.Factory pivotal() {
+        return Pivotal::new;
+    }
+
+    /**
+     * Bundle Index evaluator counting the winning coalitions of a vector at once
+     */
+    static final class Bundle extends CoalitionEvaluator.Bundle {
+        private final double q;
+        private long winning;
+
+        Bundle(double q) {
+            super(q);
+            this.q = q;
+        }
+
+        @Override
+        public void visitLast(double[] weights, int[] members, int size, double sum, int from, int to) {
+            DoubleVector shared = DoubleVector.broadcast(SPECIES, sum);
+            int j = from;
+            for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += SPECIES.length()) {
+                DoubleVector total = shared.add(DoubleVector.fromArray(SPECIES, weights, j));
+                winning += total.compare(VectorOperators.GE, q).trueCount();
+            }
+            super.visitLast(weights, members, size, sum, j, to);
+        }
+
+        @Override
+        public double result() {
+            return super.result() + winning;
+        }
+    }
+
+    /**
+     * Pivotal Index evaluator testing every shared member of a vector of coalitions at once
+     */
+    static final class Pivotal extends CoalitionEvaluator.Pivotal {
+        private final double q;
+        private double pivotal;
+
+        Pivotal(double q) {
+            super(q);
+            this.q = q;
+        }
+
+        @Override
+        public void visitLast(double[] weights, int[] members, int size, double sum, int from, int to) {
+            DoubleVector shared = DoubleVector.broadcast(SPECIES, sum);
+            long pivotalNodes = 0;
+            int j = from;
+            for (int bound = from + SPECIES.loopBound(to - from); j < bound; j += SPECIES.length()) {
+                DoubleVector last = DoubleVector.fromArray(SPECIES, weights, j);
+                DoubleVector total = shared.add(last);
+                VectorMask<Double> winning = total.compare(VectorOperators.GE, q);
+                if (!winning.anyTrue()) {
+                    continue;
+                }
+                pivotalNodes += total.sub(last).compare(VectorOperators.LT, q).and(winning).trueCount();
+                for (int i = 0; i < size; i++) {
+                    pivotalNodes += total.sub(weights[members[i]]).compare(VectorOperators.LT, q).and(winning).trueCount();
+                }
+            }
+            pivotal += (double) (size + 1) * pivotalNodes;
+            super.visitLast(weights, members, size, sum, j, to);
+        }
+
+        @Override
+        public double result() {
+            return super.result() + pivotal;
+        }
+    }
+}
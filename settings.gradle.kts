@@ -15,3 +15,5 @@ dependencyResolutionManagement {
 
 rootProject.name = "BundlePivotalIndicesDemo"
 include(":app")
+include(":cli")
+include(":benchmark")